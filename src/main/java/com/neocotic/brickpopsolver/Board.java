@@ -24,21 +24,15 @@ package com.neocotic.brickpopsolver;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
-import java.util.Deque;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
-import java.util.LinkedHashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Set;
-import java.util.stream.Collectors;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.SystemUtils;
-import org.apache.commons.lang3.builder.EqualsBuilder;
-import org.apache.commons.lang3.builder.HashCodeBuilder;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -50,8 +44,8 @@ public final class Board {
 
     private static final Logger logger = LoggerFactory.getLogger(Board.class);
 
+    private static final int EMPTY_ID = Palette.EMPTY_ID;
     private static final int GRID_SIZE = 10;
-    private static final Coordinate[] NEIGHBORS = {new Coordinate(-1, 0), new Coordinate(0, 1), new Coordinate(1, 0), new Coordinate(0, -1)};
 
     public static Board fromScreenshot(final Screenshot screenshot, final Configuration configuration) {
         logger.trace("fromScreenshot:enter(screenshot={}, configuration={})", screenshot, configuration);
@@ -75,15 +69,19 @@ public final class Board {
         return board;
     }
 
-    private final Color[][] grid;
+    // Counts the bricks of each color by ID so that the counts can be maintained incrementally as bricks are popped
+    private static int[] countColors(final byte[] cells, final int paletteSize) {
+        final int[] colorCounts = new int[paletteSize];
+        for (final byte cell : cells) {
+            if (cell != EMPTY_ID) {
+                colorCounts[cell & 0xFF]++;
+            }
+        }
 
-    public Board(final Color[][] grid) {
-        this.grid = Objects.requireNonNull(grid, "grid");
+        return colorCounts;
     }
 
-    public Board(final Map<Coordinate, Color> map) {
-        Objects.requireNonNull(map, "map");
-
+    private static Color[][] toGrid(final Map<Coordinate, Color> map) {
         final Set<Coordinate> coordinates = map.keySet();
         final int maxColumn = coordinates.stream()
             .map(Coordinate::getColumn)
@@ -104,158 +102,312 @@ public final class Board {
             grid[i] = colors;
         }
 
-        this.grid = grid;
+        return grid;
     }
 
-    public List<Move> getAvailableMoves() {
-        logger.trace("getAvailableMoves:enter()");
+    // Cells are held as color IDs in column-major order (i.e. index = column * rows + row) so that gravity and column
+    // removal during contraction only ever need to move contiguous ranges. ID 0 is always the empty color.
+    private final byte[] cells;
+    private final int[] colorCounts;
+    private final long[] columnKeys;
+    private final int columns;
+    private volatile Components components;
+    private final int dirtyColumn;
+    private final long key;
+    private final int[] neighbors;
+    private final Palette palette;
+    private volatile Components parentComponents;
+    private final int rows;
+    private final boolean settled;
+    private final Zobrist zobrist;
 
-        final List<Move> moves = new ArrayList<>();
-        final Set<Board> pools = new HashSet<>();
+    public Board(final Color[][] grid) {
+        Objects.requireNonNull(grid, "grid");
 
-        for (int i = 0; i < grid.length; i++) {
-            for (int j = 0; j < grid[i].length; j++) {
-                final Color color = grid[i][j];
+        rows = grid.length;
+        columns = rows > 0 ? grid[0].length : 0;
+        cells = new byte[rows * columns];
+        neighbors = FloodFill.neighbors(rows, columns);
+        palette = new Palette();
 
-                if (!color.isEmpty()) {
-                    final Coordinate coordinate = new Coordinate(i, j);
-                    final Board board = popFrom(coordinate);
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < columns; j++) {
+                cells[(j * rows) + i] = (byte) palette.intern(grid[i][j]);
+            }
+        }
 
-                    if (board != null && !pools.contains(board)) {
-                        pools.add(board);
-                        moves.add(new Move(coordinate, board));
-                    }
-                }
+        colorCounts = countColors(cells, palette.size());
+        dirtyColumn = 0;
+        settled = checkSettled(cells, rows, columns);
+        zobrist = new Zobrist(palette, rows, columns);
+        columnKeys = new long[columns];
+
+        long key = 0;
+        for (int j = 0; j < columns; j++) {
+            long columnKey = 0;
+            for (int i = 0; i < rows; i++) {
+                columnKey ^= zobrist.cell(i, cells[(j * rows) + i] & 0xFF);
             }
+
+            columnKeys[j] = columnKey;
+            key ^= zobrist.column(columnKey, j);
+        }
+
+        this.key = key;
+    }
+
+    public Board(final Map<Coordinate, Color> map) {
+        this(toGrid(Objects.requireNonNull(map, "map")));
+    }
+
+    Board(final Palette palette, final int[] neighbors, final Zobrist zobrist, final byte[] cells, final int[] colorCounts, final long[] columnKeys, final long key, final int rows, final int columns, final boolean settled) {
+        this(palette, neighbors, zobrist, cells, colorCounts, columnKeys, key, rows, columns, settled, null, 0);
+    }
+
+    private Board(final Palette palette, final int[] neighbors, final Zobrist zobrist, final byte[] cells, final int[] colorCounts, final long[] columnKeys, final long key, final int rows, final int columns, final boolean settled, final Components parentComponents, final int dirtyColumn) {
+        this.palette = palette;
+        this.neighbors = neighbors;
+        this.zobrist = zobrist;
+        this.cells = cells;
+        this.colorCounts = colorCounts;
+        this.columnKeys = columnKeys;
+        this.key = key;
+        this.rows = rows;
+        this.columns = columns;
+        this.parentComponents = parentComponents;
+        this.dirtyColumn = dirtyColumn;
+        this.settled = settled;
+    }
+
+    public List<Move> getAvailableMoves() {
+        logger.trace("getAvailableMoves:enter()");
+
+        final List<Move> moves = new ArrayList<>();
+        final Iterator<Move> iterator = iterateAvailableMoves();
+        while (iterator.hasNext()) {
+            moves.add(iterator.next());
         }
 
         logger.trace("getAvailableMoves:exit({})", moves);
         return moves;
     }
 
-    public Color getColor(final Coordinate coordinate) {
-        return grid[coordinate.getRow()][coordinate.getColumn()];
+    // Iterates over the same moves as getAvailableMoves, in the same order, without collecting them up front. The board
+    // resulting from a move is only derived once it is requested from that move.
+    public Iterator<Move> iterateAvailableMoves() {
+        return new MoveIterator();
     }
 
-    public boolean isSolved() {
-        return grid[0].length == 0;
+    public int getBrickCount() {
+        int count = 0;
+        for (final int colorCount : colorCounts) {
+            count += colorCount;
+        }
+
+        return count;
     }
 
-    private Board contract() {
-        final Map<Integer, List<Integer>> emptyIndices = new HashMap<>();
+    public Color getColor(final Coordinate coordinate) {
+        final int column = coordinate.getColumn();
+        final int row = coordinate.getRow();
+
+        if (row < 0 || row >= rows || column < 0 || column >= columns) {
+            throw new IndexOutOfBoundsException(String.format("Coordinate is outside of board: %s", coordinate));
+        }
 
-        for (int j = 0; j < grid[0].length; j++) {
-            final Color[] colors = extractColumn(j);
-            final List<Integer> indices = new ArrayList<>();
+        return palette.getColor(cells[(column * rows) + row] & 0xFF);
+    }
 
-            for (int index = 0; index < colors.length; index++) {
-                if (colors[index].isEmpty()) {
-                    indices.add(index);
-                }
-            }
+    public int getColorCount(final Color color) {
+        Objects.requireNonNull(color, "color");
 
-            emptyIndices.put(j, indices);
+        for (int id = EMPTY_ID + 1; id < colorCounts.length; id++) {
+            if (palette.getRgb(id) == color.getRgb()) {
+                return colorCounts[id];
+            }
         }
 
-        final Color emptyColor = new Color();
-        final List<List<Color>> shiftedColumns = new ArrayList<>();
+        return 0;
+    }
 
-        for (int j = 0; j < grid[0].length; j++) {
-            final List<Color> colors = new ArrayList<>();
-            final int emptyCount = emptyIndices.get(j).size();
+    public int getColumns() {
+        return columns;
+    }
 
-            for (int index = 0; index < emptyCount; index++) {
-                colors.add(emptyColor);
+    public int getDistinctColorCount() {
+        int count = 0;
+        for (final int colorCount : colorCounts) {
+            if (colorCount > 0) {
+                count++;
             }
+        }
 
-            colors.addAll(Arrays.stream(extractColumn(j))
-                .filter(color -> !color.isEmpty())
-                .collect(Collectors.toList()));
+        return count;
+    }
 
-            shiftedColumns.add(colors);
-        }
+    public long getKey() {
+        return key;
+    }
 
-        final List<List<Color>> contractedColumns = shiftedColumns.stream()
-            .filter(colors -> colors.stream().anyMatch(color -> !color.isEmpty()))
-            .collect(Collectors.toList());
-        final int contractedColumnCount = contractedColumns.size();
-        final Color[][] contractedGrid = new Color[grid.length][];
+    public int getRows() {
+        return rows;
+    }
+
+    public boolean isSolved() {
+        return columns == 0;
+    }
+
+    // Checks whether every column contains at least one cell and that all of its cells have fallen to the bottom, which
+    // is always the case for boards derived by popping
+    private static boolean checkSettled(final byte[] cells, final int rows, final int columns) {
+        for (int j = 0; j < columns; j++) {
+            int i = 0;
+            while (i < rows && cells[(j * rows) + i] == EMPTY_ID) {
+                i++;
+            }
 
-        for (int i = 0; i < grid.length; i++) {
-            final Color[] colors = new Color[contractedColumnCount];
-            for (int j = 0; j < contractedColumnCount; j++) {
-                colors[j] = contractedColumns.get(j).get(i);
+            if (i == rows) {
+                return false;
             }
 
-            contractedGrid[i] = colors;
+            for (; i < rows; i++) {
+                if (cells[(j * rows) + i] == EMPTY_ID) {
+                    return false;
+                }
+            }
         }
 
-        return new Board(contractedGrid);
+        return true;
     }
 
-    private Color[] extractColumn(final int column) {
-        final Color[] columnColors = new Color[grid.length];
-        for (int i = 0; i < grid.length; i++) {
-            columnColors[i] = grid[i][column];
+    private Board contract(final byte[] poppedCells, final int[] poppedColorCounts, final int dirtyColumn, final int dirtyEndColumn) {
+        final byte[] contractedCells = new byte[poppedCells.length];
+        final long[] contractedColumnKeys = new long[columns];
+        // Columns before the dirty column are left untouched by a pop and, once settled, cannot change by contraction
+        final int cleanColumns = settled ? dirtyColumn : 0;
+        int contractedColumns = cleanColumns;
+        long contractedKey = key;
+
+        System.arraycopy(poppedCells, 0, contractedCells, 0, cleanColumns * rows);
+        System.arraycopy(columnKeys, 0, contractedColumnKeys, 0, cleanColumns);
+
+        for (int j = cleanColumns; j < columns; j++) {
+            final int columnStart = j * rows;
+            final int contractedStart = contractedColumns * rows;
+            long columnKey = 0;
+
+            contractedKey ^= zobrist.column(columnKeys[j], j);
+
+            if (settled && j > dirtyEndColumn) {
+                // Columns after the popped cells are unchanged other than potentially being shifted to the left
+                System.arraycopy(poppedCells, columnStart, contractedCells, contractedStart, rows);
+                columnKey = columnKeys[j];
+            } else {
+                // Non-empty cells fall to the bottom of the column while retaining their order
+                int target = contractedStart + rows;
+
+                for (int i = rows - 1; i >= 0; i--) {
+                    final byte cell = poppedCells[columnStart + i];
+
+                    if (cell != EMPTY_ID) {
+                        contractedCells[--target] = cell;
+                        columnKey ^= zobrist.cell(target - contractedStart, cell & 0xFF);
+                    }
+                }
+
+                // Columns left without any cells are removed entirely, shifting all following columns to the left
+                if (target == contractedStart + rows) {
+                    continue;
+                }
+            }
+
+            contractedColumnKeys[contractedColumns] = columnKey;
+            contractedKey ^= zobrist.column(columnKey, contractedColumns);
+            contractedColumns++;
         }
 
-        return columnColors;
+        final Components contractedParentComponents = settled ? getComponents() : null;
+
+        return new Board(palette, neighbors, zobrist, Arrays.copyOf(contractedCells, contractedColumns * rows), poppedColorCounts, Arrays.copyOf(contractedColumnKeys, contractedColumns), contractedKey, rows, contractedColumns, true, contractedParentComponents, dirtyColumn);
     }
 
-    private Set<Coordinate> floodIndices(final Coordinate coordinate) {
-        final Set<Coordinate> flood = new LinkedHashSet<>();
-        final Color floodColor = getColor(coordinate);
-        final Deque<Coordinate> queue = new LinkedList<>();
-        queue.add(coordinate);
+    private Components getComponents() {
+        // Racing threads can only ever compute and publish equivalent components
+        Components result = components;
+        if (result == null) {
+            final Components parent = parentComponents;
 
-        while (!queue.isEmpty()) {
-            final Coordinate location = queue.pop();
-            flood.add(location);
+            if (parent != null) {
+                result = Components.derive(parent, dirtyColumn, cells, rows, columns, neighbors);
+            } else {
+                result = Components.label(cells, rows, columns, neighbors);
+            }
 
-            queue.addAll(getNeighbors(location).stream()
-                .filter(neighbor -> floodColor.equals(getColor(neighbor)) && !flood.contains(neighbor))
-                .collect(Collectors.toList()));
+            components = result;
+            // Parent components are no longer needed and would otherwise keep the labels of every ancestor reachable
+            parentComponents = null;
         }
 
-        return flood;
+        return result;
     }
 
-    private List<Coordinate> getNeighbors(final Coordinate coordinate) {
-        return Arrays.stream(NEIGHBORS)
-            .map(neighbor -> coordinate.offset(neighbor.getRow(), neighbor.getColumn()))
-            .filter(this::isCoordinateValid)
-            .collect(Collectors.toList());
+    Board popFrom(final Components components, final int label) {
+        final byte[] poppedCells = cells.clone();
+        final int[] poppedColorCounts = colorCounts.clone();
+        final int minColumn = components.getMinColumn(label);
+        final int end = (components.getMaxColumn(label) + 1) * rows;
+
+        for (int index = minColumn * rows; index < end; index++) {
+            if (components.getLabel(index) == label) {
+                poppedCells[index] = EMPTY_ID;
+            }
+        }
+
+        poppedColorCounts[cells[components.getOrigin(label)] & 0xFF] -= components.getSize(label);
+
+        return contract(poppedCells, poppedColorCounts, minColumn, components.getMaxColumn(label));
     }
 
-    private boolean isCoordinateValid(final Coordinate coordinate) {
-        final int column = coordinate.getColumn();
-        final int row = coordinate.getRow();
+    byte[] getCells() {
+        return cells;
+    }
 
-        return (row >= 0 && row < grid.length) && (column >= 0 && column < grid[0].length);
+    int[] getColorCounts() {
+        return colorCounts;
     }
 
-    private Board popFrom(final Coordinate coordinate) {
-        final Set<Coordinate> flood = floodIndices(coordinate);
-        // Flood pool must contain multiple elements to be popped
-        if (flood.size() == 1) {
-            return null;
-        }
+    long[] getColumnKeys() {
+        return columnKeys;
+    }
 
-        final Color[][] updatedGrid = new Color[grid.length][];
-        for (int i = 0; i < grid.length; i++) {
-            final Color[] colors = new Color[grid[i].length];
-            for (int j = 0; j < grid[i].length; j++) {
-                colors[j] = flood.contains(new Coordinate(i, j)) ? Color.EMPTY : grid[i][j];
+    public Color[][] getGrid() {
+        final Color[][] grid = new Color[rows][];
+        for (int i = 0; i < rows; i++) {
+            final Color[] colors = new Color[columns];
+            for (int j = 0; j < columns; j++) {
+                colors[j] = palette.getColor(cells[(j * rows) + i] & 0xFF);
             }
 
-            updatedGrid[i] = colors;
+            grid[i] = colors;
         }
 
-        return new Board(updatedGrid).contract();
+        return grid;
     }
 
-    public Color[][] getGrid() {
-        return grid;
+    int[] getNeighbors() {
+        return neighbors;
+    }
+
+    Palette getPalette() {
+        return palette;
+    }
+
+    Zobrist getZobrist() {
+        return zobrist;
+    }
+
+    boolean isSettled() {
+        return settled;
     }
 
     @Override
@@ -271,22 +423,32 @@ public final class Board {
         }
 
         final Board other = (Board) obj;
-        return new EqualsBuilder()
-            .append(grid, other.grid)
-            .isEquals();
+        // Keys can only differ for unequal boards so a full comparison is only needed when they match
+        if (key != other.key || rows != other.rows || columns != other.columns) {
+            return false;
+        }
+        if (palette == other.palette) {
+            return Arrays.equals(cells, other.cells);
+        }
+
+        for (int i = 0; i < cells.length; i++) {
+            if (palette.getRgb(cells[i] & 0xFF) != other.palette.getRgb(other.cells[i] & 0xFF)) {
+                return false;
+            }
+        }
+
+        return true;
     }
 
     @Override
     public int hashCode() {
-        return new HashCodeBuilder()
-            .append(grid)
-            .hashCode();
+        return Long.hashCode(key);
     }
 
     @Override
     public String toString() {
         final StringBuilder gridBuilder = new StringBuilder(SystemUtils.LINE_SEPARATOR);
-        for (final Color[] colors : grid) {
+        for (final Color[] colors : getGrid()) {
             gridBuilder.append("  ");
             gridBuilder.append(StringUtils.join(colors, ','));
             gridBuilder.append(SystemUtils.LINE_SEPARATOR);
@@ -296,4 +458,42 @@ public final class Board {
             .append("grid", gridBuilder)
             .toString();
     }
+
+    private final class MoveIterator implements Iterator<Move> {
+
+        private Components components;
+        private int label = -1;
+
+        @Override
+        public boolean hasNext() {
+            return findNext() < components.getCount();
+        }
+
+        @Override
+        public Move next() {
+            final int next = findNext();
+            if (next >= components.getCount()) {
+                throw new NoSuchElementException();
+            }
+
+            label = next;
+
+            final int origin = components.getOrigin(label);
+            return new Move(new Coordinate(origin % rows, origin / rows), Board.this, components, label);
+        }
+
+        private int findNext() {
+            if (components == null) {
+                components = getComponents();
+            }
+
+            int next = label + 1;
+            // Component must contain multiple cells to be popped
+            while (next < components.getCount() && components.getSize(next) < 2) {
+                next++;
+            }
+
+            return next;
+        }
+    }
 }
@@ -21,14 +21,17 @@
  */
 package com.neocotic.brickpopsolver;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.List;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
@@ -40,10 +43,11 @@ import com.neocotic.brickpopsolver.device.Screenshot;
 import com.neocotic.brickpopsolver.image.ImageService;
 import com.neocotic.brickpopsolver.service.ServiceNotFoundException;
 import com.neocotic.brickpopsolver.solution.Solution;
+import com.neocotic.brickpopsolver.solution.SolutionCache;
 import com.neocotic.brickpopsolver.solution.SolutionException;
 import com.neocotic.brickpopsolver.solution.SolutionService;
 
-public final class BrickPopSolver {
+public final class BrickPopSolver implements Closeable {
 
     private static final Logger logger = LoggerFactory.getLogger(BrickPopSolver.class);
 
@@ -52,37 +56,69 @@ public final class BrickPopSolver {
     public static void main(final String[] args) throws Exception {
         logger.trace("main:enter(args={})", new Object[]{args});
 
-        final BrickPopSolver solver = new BrickPopSolver();
-        if (ArrayUtils.isEmpty(args)) {
-            solver.solve().play();
-        } else {
-            solver.solve(Paths.get(args[0]));
+        try (BrickPopSolver solver = new BrickPopSolver()) {
+            if (ArrayUtils.isEmpty(args)) {
+                solver.solve().play();
+            } else {
+                solver.solve(Paths.get(args[0]));
+            }
         }
 
         logger.trace("main:exit()");
     }
 
+    private static Boolean getBooleanProperty(final String key) {
+        final String value = getProperty(key);
+        return value != null ? Boolean.valueOf(value) : null;
+    }
+
     private static Integer getIntegerProperty(final String key) {
         final String value = getProperty(key);
         return value != null ? Integer.valueOf(value) : null;
     }
 
+    private static Long getLongProperty(final String key) {
+        final String value = getProperty(key);
+        return value != null ? Long.valueOf(value) : null;
+    }
+
     private static String getProperty(final String key) {
         return System.getProperty(PROPERTY_PREFIX + key);
     }
 
     private final Configuration configuration;
+    private SolutionCache solutionCache;
+    private boolean solutionCacheOpened;
 
     public BrickPopSolver() throws ServiceNotFoundException {
-        final String deviceServiceName = getProperty("deviceService.name");
-        final String imageServiceName = getProperty("imageService.name");
-        final String solutionServiceName = getProperty("solutionService.name");
-        final String imageFormatName = getProperty("imageFormat.name");
-        final Integer offset = getIntegerProperty("offset");
-        final Integer startX = getIntegerProperty("start.x");
-        final Integer startY = getIntegerProperty("start.y");
-
-        configuration = new Configuration(deviceServiceName, imageServiceName, solutionServiceName, imageFormatName, offset, startX, startY);
+        configuration = new Configuration.Builder()
+            .deviceServiceName(getProperty("deviceService.name"))
+            .imageServiceName(getProperty("imageService.name"))
+            .solutionServiceName(getProperty("solutionService.name"))
+            .imageFormatName(getProperty("imageFormat.name"))
+            .offset(getIntegerProperty("offset"))
+            .startX(getIntegerProperty("start.x"))
+            .startY(getIntegerProperty("start.y"))
+            .transpositionTableSize(getIntegerProperty("transpositionTable.size"))
+            .transpositionTableReplacementName(getProperty("transpositionTable.replacement"))
+            .pruningRuleNames(getProperty("pruning.rules"))
+            .moveOrderingName(getProperty("moveOrdering.name"))
+            .nodeLimit(getIntegerProperty("nodeLimit"))
+            .beamWidth(getIntegerProperty("beam.width"))
+            .beamScoringName(getProperty("beam.scoring"))
+            .mctsTimeLimit(getIntegerProperty("mcts.timeLimit"))
+            .timeLimit(getIntegerProperty("timeLimit"))
+            .restartUnit(getIntegerProperty("restart.unit"))
+            .restartThreads(getIntegerProperty("restart.threads"))
+            .seed(getLongProperty("seed"))
+            .partialOrderReduction(getBooleanProperty("partialOrderReduction"))
+            .spillDirectoryName(getProperty("spill.directory"))
+            .spillThreshold(getIntegerProperty("spill.threshold"))
+            .cacheFileName(getProperty("cache.file"))
+            .cacheSize(getIntegerProperty("cache.size"))
+            .tablebaseFileName(getProperty("tablebase.file"))
+            .tablebaseThreshold(getIntegerProperty("tablebase.threshold"))
+            .build();
     }
 
     public BrickPopSolver(final Configuration configuration) {
@@ -91,6 +127,22 @@ public final class BrickPopSolver {
         logger.debug("BrickPopSolver created with configuration:{}{}", System.lineSeparator(), configuration);
     }
 
+    // Shuts down any threads kept by the solution service and closes the solution cache, if it was opened, so that it
+    // can be used by another process. Boards may still be solved afterwards, but without the cache.
+    @Override
+    public synchronized void close() throws IOException {
+        configuration.getSolutionService().shutdown();
+
+        if (solutionCache != null) {
+            final SolutionCache closing = solutionCache;
+            solutionCache = null;
+
+            closing.close();
+
+            logger.debug("Closed solution cache: {}", closing);
+        }
+    }
+
     public Solution solve() throws BrickPopSolverException {
         logger.trace("solve:enter()");
 
@@ -134,17 +186,54 @@ public final class BrickPopSolver {
 
         logger.info("Solving board:{}{}", System.lineSeparator(), board);
 
-        final SolutionService solutionService = configuration.getSolutionService();
+        final SolutionCache solutionCache = getSolutionCache();
         final Instant start = Instant.now();
-        final Solution solution = solutionService.solve(board, configuration);
+
+        if (solutionCache != null) {
+            final List<Coordinate> cachedSteps = solutionCache.get(board);
+
+            if (cachedSteps != null) {
+                final Solution solution = new Solution(configuration, cachedSteps);
+
+                if (logger.isInfoEnabled()) {
+                    logger.info("Found a cached solution in {}us:{}{}", Duration.between(start, Instant.now()).toNanos() / 1000, System.lineSeparator(), solution);
+                }
+
+                logger.trace("solve:exit({})", solution);
+                return solution;
+            }
+        }
+
+        final SolutionService solutionService = configuration.getSolutionService();
+        // Solutions are kept as they are found so that the best one is still used should the service fail to return it
+        final AtomicReference<Solution> best = new AtomicReference<>();
+        Solution solution = solutionService.solve(board, configuration, found -> {
+            best.set(found);
+
+            if (logger.isDebugEnabled()) {
+                logger.debug("Found a solution of {} steps after {}ms", found.isEmpty() ? 0 : found.getSteps().size(), Duration.between(start, Instant.now()).toMillis());
+            }
+        });
         final Instant end = Instant.now();
 
+        if (solution.isEmpty() && best.get() != null) {
+            solution = best.get();
+        }
+
         if (solution.isEmpty()) {
             throw new SolutionException("No solution could be found");
         }
 
         if (logger.isInfoEnabled()) {
-            logger.info("Found a solution in {} seconds:{}{}", Duration.between(start, end).getSeconds(), System.lineSeparator(), solution);
+            logger.info("Found a solution in {}ms:{}{}", Duration.between(start, end).toMillis(), System.lineSeparator(), solution);
+        }
+
+        if (solutionCache != null) {
+            try {
+                solutionCache.put(board, solution.getSteps());
+            } catch (IOException e) {
+                logger.warn("Failed to cache solution", e);
+            }
         }
 
         logger.trace("solve:exit({})", solution);
@@ -165,6 +254,25 @@ public final class BrickPopSolver {
         return tempFile.toPath();
     }
 
+    // Opens the solution cache the first time that it is needed, returning null if solutions are not to be cached or if
+    // it could not be opened, in which case boards are still solved as though it had never been enabled
+    private synchronized SolutionCache getSolutionCache() {
+        if (!solutionCacheOpened && configuration.getCacheSize() > 0) {
+            solutionCacheOpened = true;
+
+            final int capacity = (int) Math.min(configuration.getCacheSize() * 1024L * 1024L, Integer.MAX_VALUE);
+            try {
+                solutionCache = new SolutionCache(configuration.getCacheFile(), capacity);
+
+                logger.debug("Opened solution cache: {}", solutionCache);
+            } catch (IOException e) {
+                logger.warn("Failed to open solution cache: {}", configuration.getCacheFile(), e);
+            }
+        }
+
+        return solutionCache;
+    }
+
     private Solution solve(final Screenshot screenshot) throws BrickPopSolverException {
         return solve(Board.fromScreenshot(screenshot, configuration));
     }
@@ -23,49 +23,62 @@ package com.neocotic.brickpopsolver;
 
 import java.util.Objects;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.commons.lang3.builder.CompareToBuilder;
-import org.apache.commons.lang3.builder.EqualsBuilder;
-import org.apache.commons.lang3.builder.HashCodeBuilder;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 
 public final class Color implements Comparable<Color> {
 
     public static final Color EMPTY = new Color();
 
-    private static final String EMPTY_CODE = "f7efe4";
+    private static final int EMPTY_RGB = 0xf7efe4;
     private static final String EMPTY_CODE_REPLACEMENT = "------";
 
-    private static String toHex(final int value) {
-        return StringUtils.leftPad(Integer.toString(value, 16), 2, '0');
+    // Codes are read case-insensitively, so "F7EFE4" is the empty color just as "f7efe4" is
+    private static int parseRgb(final String code) {
+        if (code.length() != 6 || !StringUtils.containsOnly(code, "0123456789abcdefABCDEF")) {
+            throw new IllegalArgumentException(String.format("code must be six hexadecimal digits: %s", code));
+        }
+
+        return Integer.parseInt(code, 16);
+    }
+
+    private static int toRgb(final int red, final int green, final int blue) {
+        return ((red & 0xff) << 16) | ((green & 0xff) << 8) | (blue & 0xff);
     }
 
-    private final String code;
+    // Held as a packed 0xRRGGBB value so that colors can be compared and hashed without touching strings
+    private final int rgb;
 
     public Color() {
-        this(EMPTY_CODE);
+        this(EMPTY_RGB);
     }
 
     public Color(final int red, final int green, final int blue) {
-        this(toHex(red) + toHex(green) + toHex(blue));
+        this(toRgb(red, green, blue));
     }
 
     public Color(final String code) {
-        this.code = Objects.requireNonNull(code, "code");
+        this(parseRgb(Objects.requireNonNull(code, "code")));
+    }
+
+    private Color(final int rgb) {
+        this.rgb = rgb;
     }
 
     public boolean isEmpty() {
-        return EMPTY_CODE.equals(code);
+        return rgb == EMPTY_RGB;
     }
 
     public String getCode() {
-        return code;
+        return StringUtils.leftPad(Integer.toHexString(rgb), 6, '0');
+    }
+
+    public int getRgb() {
+        return rgb;
     }
 
     @Override
     public int compareTo(final Color o) {
-        return new CompareToBuilder()
-            .append(code, o.code)
-            .toComparison();
+        return Integer.compare(rgb, o.rgb);
     }
 
     @Override
@@ -81,22 +94,18 @@ public final class Color implements Comparable<Color> {
         }
 
         final Color other = (Color) obj;
-        return new EqualsBuilder()
-            .append(code, other.code)
-            .isEquals();
+        return rgb == other.rgb;
     }
 
     @Override
     public int hashCode() {
-        return new HashCodeBuilder()
-            .append(code)
-            .hashCode();
+        return rgb;
     }
 
     @Override
     public String toString() {
         return new ToStringBuilder(this, CustomToStringStyle.SHORT_STYLE)
-            .append("code", isEmpty() ? EMPTY_CODE_REPLACEMENT : code)
+            .append("code", isEmpty() ? EMPTY_CODE_REPLACEMENT : getCode())
             .toString();
     }
 }
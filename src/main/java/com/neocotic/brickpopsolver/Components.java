@@ -0,0 +1,179 @@
+/*
+ * Copyright (C) 2018 Alasdair Mercer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.neocotic.brickpopsolver;
+
+import java.util.Arrays;
+
+final class Components {
+
+    static final int NO_LABEL = -1;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    // Labels every group of connected cells sharing the same color in a single scan. Cells are scanned in row-major
+    // order so that components are labeled in the same order as their first cell is seen when reading the board and
+    // that first cell is used as the component's origin.
+    static Components label(final byte[] cells, final int rows, final int columns, final int[] neighbors) {
+        return scan(null, 0, cells, rows, columns, neighbors);
+    }
+
+    // Labels the components of a board derived by popping a component from a settled parent board, where dirtyColumn
+    // is the left-most column of the popped component. Columns to the left of it are untouched by the pop so any
+    // parent component that ends at least one column before it cannot have changed and is carried forward as is. Only
+    // the cells of other components are flooded again.
+    static Components derive(final Components parent, final int dirtyColumn, final byte[] cells, final int rows, final int columns, final int[] neighbors) {
+        return scan(parent, dirtyColumn, cells, rows, columns, neighbors);
+    }
+
+    private static Components scan(final Components parent, final int dirtyColumn, final byte[] cells, final int rows, final int columns, final int[] neighbors) {
+        final Components components = new Components(cells.length);
+        final int[] labels = components.labels;
+        final int[] remap;
+
+        if (parent != null) {
+            final int cleanEnd = Math.max(0, dirtyColumn - 1) * rows;
+
+            System.arraycopy(parent.labels, 0, labels, 0, cleanEnd);
+            Arrays.fill(labels, cleanEnd, labels.length, NO_LABEL);
+
+            remap = new int[parent.count];
+            Arrays.fill(remap, NO_LABEL);
+        } else {
+            Arrays.fill(labels, NO_LABEL);
+
+            remap = null;
+        }
+
+        final FloodFill floodFill = FloodFill.get();
+
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < columns; j++) {
+                final int index = (j * rows) + i;
+                final int label = labels[index];
+
+                if (cells[index] == Palette.EMPTY_ID) {
+                    continue;
+                }
+
+                if (label >= 0 && parent.maxColumns[label] + 1 < dirtyColumn) {
+                    // Cell belongs to a clean parent component, the first of its cells to be seen being its origin
+                    if (remap[label] == NO_LABEL) {
+                        remap[label] = components.add(parent.origins[label], parent.sizes[label], parent.minColumns[label], parent.maxColumns[label]);
+                    }
+
+                    labels[index] = remap[label];
+                } else if (label < NO_LABEL) {
+                    // Cell was flooded from the origin of a new component earlier in the scan
+                    labels[index] = toLabel(label);
+                } else {
+                    // Cell is either unlabeled or still holds a stale label copied from a dirty parent component
+                    final int floodSize = floodFill.fill(cells, cells.length, neighbors, index);
+                    final int[] flood = floodFill.getFlood();
+                    int maxColumn = j;
+                    int minColumn = j;
+
+                    for (int k = 0; k < floodSize; k++) {
+                        final int column = flood[k] / rows;
+
+                        maxColumn = Math.max(maxColumn, column);
+                        minColumn = Math.min(minColumn, column);
+                    }
+
+                    final int newLabel = components.add(index, floodSize, minColumn, maxColumn);
+                    final int pending = toPending(newLabel);
+
+                    for (int k = 0; k < floodSize; k++) {
+                        labels[flood[k]] = pending;
+                    }
+
+                    labels[index] = newLabel;
+                }
+            }
+        }
+
+        return components;
+    }
+
+    // Labels written to flooded cells ahead of the scan reaching them are encoded as values below NO_LABEL so that they
+    // can never be mistaken for labels copied from the parent
+    private static int toLabel(final int pending) {
+        return NO_LABEL - 1 - pending;
+    }
+
+    private static int toPending(final int label) {
+        return NO_LABEL - 1 - label;
+    }
+
+    private int count;
+    private final int[] labels;
+    private int[] maxColumns = new int[INITIAL_CAPACITY];
+    private int[] minColumns = new int[INITIAL_CAPACITY];
+    private int[] origins = new int[INITIAL_CAPACITY];
+    private int[] sizes = new int[INITIAL_CAPACITY];
+
+    private Components(final int cellCount) {
+        labels = new int[cellCount];
+    }
+
+    private int add(final int origin, final int size, final int minColumn, final int maxColumn) {
+        if (count == origins.length) {
+            final int capacity = count * 2;
+
+            maxColumns = Arrays.copyOf(maxColumns, capacity);
+            minColumns = Arrays.copyOf(minColumns, capacity);
+            origins = Arrays.copyOf(origins, capacity);
+            sizes = Arrays.copyOf(sizes, capacity);
+        }
+
+        final int label = count++;
+        maxColumns[label] = maxColumn;
+        minColumns[label] = minColumn;
+        origins[label] = origin;
+        sizes[label] = size;
+
+        return label;
+    }
+
+    int getCount() {
+        return count;
+    }
+
+    int getLabel(final int index) {
+        return labels[index];
+    }
+
+    int getMaxColumn(final int label) {
+        return maxColumns[label];
+    }
+
+    int getMinColumn(final int label) {
+        return minColumns[label];
+    }
+
+    int getOrigin(final int label) {
+        return origins[label];
+    }
+
+    int getSize(final int label) {
+        return sizes[label];
+    }
+}
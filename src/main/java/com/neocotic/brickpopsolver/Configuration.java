@@ -21,7 +21,13 @@
  */
 package com.neocotic.brickpopsolver;
 
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
 import org.apache.commons.lang3.builder.ToStringBuilder;
@@ -34,25 +40,75 @@ import com.neocotic.brickpopsolver.image.ImageService;
 import com.neocotic.brickpopsolver.image.opencv.OpenCVImageService;
 import com.neocotic.brickpopsolver.service.ServiceManager;
 import com.neocotic.brickpopsolver.service.ServiceNotFoundException;
+import com.neocotic.brickpopsolver.solution.BeamScoring;
+import com.neocotic.brickpopsolver.solution.MoveOrdering;
+import com.neocotic.brickpopsolver.solution.PruningRule;
+import com.neocotic.brickpopsolver.solution.ReplacementPolicy;
 import com.neocotic.brickpopsolver.solution.SolutionService;
+import com.neocotic.brickpopsolver.solution.ordering.ScanMoveOrdering;
 import com.neocotic.brickpopsolver.solution.parallel.ParallelSolutionService;
+import com.neocotic.brickpopsolver.solution.pruning.SingletonColorRule;
 
 public final class Configuration {
 
+    public static final String DEFAULT_BEAM_SCORING_NAME = BeamScoring.SINGLETONS.name();
+    public static final int DEFAULT_BEAM_WIDTH = 2000;
+    public static final String DEFAULT_CACHE_FILE_NAME = Paths.get(System.getProperty("java.io.tmpdir"), "brickpopsolver-solutions.cache").toString();
+    // Zero means that solutions are never cached
+    public static final int DEFAULT_CACHE_SIZE = 0;
     public static final String DEFAULT_DEVICE_SERVICE_NAME = AndroidDeviceService.SERVICE_NAME;
     public static final String DEFAULT_IMAGE_FORMAT_NAME = ImageFormat.PNG.name();
     public static final String DEFAULT_IMAGE_SERVICE_NAME = OpenCVImageService.SERVICE_NAME;
+    public static final int DEFAULT_MCTS_TIME_LIMIT = 5000;
+    public static final String DEFAULT_MOVE_ORDERING_NAME = ScanMoveOrdering.SERVICE_NAME;
+    public static final int DEFAULT_NODE_LIMIT = 2000000;
     public static final int DEFAULT_OFFSET = 102;
+    public static final boolean DEFAULT_PARTIAL_ORDER_REDUCTION = true;
+    // Rule names are separated by commas and the rules are applied in the order given
+    public static final String DEFAULT_PRUNING_RULE_NAMES = SingletonColorRule.SERVICE_NAME;
+    public static final int DEFAULT_RESTART_THREADS = 1;
+    public static final int DEFAULT_RESTART_UNIT = 100;
+    public static final long DEFAULT_SEED = 0L;
     public static final String DEFAULT_SOLUTION_SERVICE_NAME = ParallelSolutionService.SERVICE_NAME;
+    public static final String DEFAULT_SPILL_DIRECTORY_NAME = System.getProperty("java.io.tmpdir");
+    // Zero means that frontiers are never spilled to disk
+    public static final int DEFAULT_SPILL_THRESHOLD = 0;
     public static final int DEFAULT_START_X = 86;
     public static final int DEFAULT_START_Y = 485;
+    public static final String DEFAULT_TABLEBASE_FILE_NAME = Paths.get(System.getProperty("java.io.tmpdir"), "brickpopsolver-endgame.tablebase").toString();
+    // Zero means that the tablebase is never consulted
+    public static final int DEFAULT_TABLEBASE_THRESHOLD = 0;
+    // Zero means that solutions may take as long as they need
+    public static final int DEFAULT_TIME_LIMIT = 0;
+    public static final String DEFAULT_TRANSPOSITION_TABLE_REPLACEMENT_NAME = ReplacementPolicy.ALWAYS.name();
+    // Zero means that unsolvable boards are never kept
+    public static final int DEFAULT_TRANSPOSITION_TABLE_SIZE = 32;
 
+    private final BeamScoring beamScoring;
+    private final int beamWidth;
+    private final Path cacheFile;
+    private final int cacheSize;
     private final DeviceService deviceService;
     private final ImageFormat imageFormat;
     private final ImageService imageService;
+    private final int mctsTimeLimit;
+    private final MoveOrdering moveOrdering;
+    private final int nodeLimit;
     private final int offset;
+    private final boolean partialOrderReduction;
+    private final List<PruningRule> pruningRules;
+    private final int restartThreads;
+    private final int restartUnit;
+    private final long seed;
     private final SolutionService solutionService;
+    private final Path spillDirectory;
+    private final int spillThreshold;
     private final Point start;
+    private final Path tablebaseFile;
+    private final int tablebaseThreshold;
+    private final int timeLimit;
+    private final ReplacementPolicy transpositionTableReplacement;
+    private final int transpositionTableSize;
 
     public Configuration(final DeviceService deviceService, final ImageService imageService, final SolutionService solutionService, final ImageFormat imageFormat, final Integer offset, final Point start) {
         this.deviceService = Objects.requireNonNull(deviceService, "deviceService");
@@ -61,15 +117,91 @@ public final class Configuration {
         this.imageFormat = Objects.requireNonNull(imageFormat, "imageFormat");
         this.offset = Objects.requireNonNull(offset, "offset");
         this.start = Objects.requireNonNull(start, "start");
+        this.transpositionTableSize = DEFAULT_TRANSPOSITION_TABLE_SIZE;
+        this.transpositionTableReplacement = ReplacementPolicy.valueOf(DEFAULT_TRANSPOSITION_TABLE_REPLACEMENT_NAME);
+        // The default pruning rule and move ordering are created directly rather than looked up by name
+        this.pruningRules = Collections.singletonList(new SingletonColorRule());
+        this.moveOrdering = new ScanMoveOrdering();
+        this.nodeLimit = DEFAULT_NODE_LIMIT;
+        this.beamWidth = DEFAULT_BEAM_WIDTH;
+        this.beamScoring = BeamScoring.valueOf(DEFAULT_BEAM_SCORING_NAME);
+        this.mctsTimeLimit = DEFAULT_MCTS_TIME_LIMIT;
+        this.timeLimit = DEFAULT_TIME_LIMIT;
+        this.restartUnit = DEFAULT_RESTART_UNIT;
+        this.restartThreads = DEFAULT_RESTART_THREADS;
+        this.seed = DEFAULT_SEED;
+        this.partialOrderReduction = DEFAULT_PARTIAL_ORDER_REDUCTION;
+        this.spillDirectory = Paths.get(DEFAULT_SPILL_DIRECTORY_NAME);
+        this.spillThreshold = DEFAULT_SPILL_THRESHOLD;
+        this.cacheFile = Paths.get(DEFAULT_CACHE_FILE_NAME);
+        this.cacheSize = DEFAULT_CACHE_SIZE;
+        this.tablebaseFile = Paths.get(DEFAULT_TABLEBASE_FILE_NAME);
+        this.tablebaseThreshold = DEFAULT_TABLEBASE_THRESHOLD;
     }
 
     public Configuration(final String deviceServiceName, final String imageServiceName, final String solutionServiceName, final String imageFormatName, final Integer offset, final Integer startX, final Integer startY) throws ServiceNotFoundException {
-        this.deviceService = ServiceManager.getService(DeviceService.class, deviceServiceName != null ? deviceServiceName : DEFAULT_DEVICE_SERVICE_NAME);
-        this.imageService = ServiceManager.getService(ImageService.class, imageServiceName != null ? imageServiceName : DEFAULT_IMAGE_SERVICE_NAME);
-        this.solutionService = ServiceManager.getService(SolutionService.class, solutionServiceName != null ? solutionServiceName : DEFAULT_SOLUTION_SERVICE_NAME);
-        this.imageFormat = ImageFormat.valueOf(imageFormatName != null ? imageFormatName : DEFAULT_IMAGE_FORMAT_NAME);
-        this.offset = offset != null ? offset : DEFAULT_OFFSET;
-        this.start = new Point(startX != null ? startX : DEFAULT_START_X, startY != null ? startY : DEFAULT_START_Y);
+        this(new Builder()
+            .deviceServiceName(deviceServiceName)
+            .imageServiceName(imageServiceName)
+            .solutionServiceName(solutionServiceName)
+            .imageFormatName(imageFormatName)
+            .offset(offset)
+            .startX(startX)
+            .startY(startY));
+    }
+
+    private Configuration(final Builder builder) throws ServiceNotFoundException {
+        this.deviceService = ServiceManager.getService(DeviceService.class, builder.deviceServiceName != null ? builder.deviceServiceName : DEFAULT_DEVICE_SERVICE_NAME);
+        this.imageService = ServiceManager.getService(ImageService.class, builder.imageServiceName != null ? builder.imageServiceName : DEFAULT_IMAGE_SERVICE_NAME);
+        this.solutionService = ServiceManager.getService(SolutionService.class, builder.solutionServiceName != null ? builder.solutionServiceName : DEFAULT_SOLUTION_SERVICE_NAME);
+        this.imageFormat = ImageFormat.valueOf(builder.imageFormatName != null ? builder.imageFormatName : DEFAULT_IMAGE_FORMAT_NAME);
+        this.offset = builder.offset != null ? builder.offset : DEFAULT_OFFSET;
+        this.start = new Point(builder.startX != null ? builder.startX : DEFAULT_START_X, builder.startY != null ? builder.startY : DEFAULT_START_Y);
+        this.transpositionTableSize = builder.transpositionTableSize != null ? builder.transpositionTableSize : DEFAULT_TRANSPOSITION_TABLE_SIZE;
+        this.transpositionTableReplacement = ReplacementPolicy.valueOf(builder.transpositionTableReplacementName != null ? builder.transpositionTableReplacementName : DEFAULT_TRANSPOSITION_TABLE_REPLACEMENT_NAME);
+
+        final List<PruningRule> pruningRules = new ArrayList<>();
+        for (final String pruningRuleName : StringUtils.split(builder.pruningRuleNames != null ? builder.pruningRuleNames : DEFAULT_PRUNING_RULE_NAMES, ',')) {
+            pruningRules.add(ServiceManager.getService(PruningRule.class, pruningRuleName.trim()));
+        }
+
+        this.pruningRules = Collections.unmodifiableList(pruningRules);
+        this.moveOrdering = ServiceManager.getService(MoveOrdering.class, builder.moveOrderingName != null ? builder.moveOrderingName : DEFAULT_MOVE_ORDERING_NAME);
+        this.nodeLimit = builder.nodeLimit != null ? builder.nodeLimit : DEFAULT_NODE_LIMIT;
+        this.beamWidth = builder.beamWidth != null ? builder.beamWidth : DEFAULT_BEAM_WIDTH;
+        this.beamScoring = BeamScoring.valueOf(builder.beamScoringName != null ? builder.beamScoringName : DEFAULT_BEAM_SCORING_NAME);
+        this.mctsTimeLimit = builder.mctsTimeLimit != null ? builder.mctsTimeLimit : DEFAULT_MCTS_TIME_LIMIT;
+        this.timeLimit = builder.timeLimit != null ? builder.timeLimit : DEFAULT_TIME_LIMIT;
+        this.restartUnit = builder.restartUnit != null ? builder.restartUnit : DEFAULT_RESTART_UNIT;
+        this.restartThreads = builder.restartThreads != null ? builder.restartThreads : DEFAULT_RESTART_THREADS;
+        this.seed = builder.seed != null ? builder.seed : DEFAULT_SEED;
+        this.partialOrderReduction = builder.partialOrderReduction != null ? builder.partialOrderReduction : DEFAULT_PARTIAL_ORDER_REDUCTION;
+        this.spillDirectory = Paths.get(builder.spillDirectoryName != null ? builder.spillDirectoryName : DEFAULT_SPILL_DIRECTORY_NAME);
+        this.spillThreshold = builder.spillThreshold != null ? builder.spillThreshold : DEFAULT_SPILL_THRESHOLD;
+        this.cacheFile = Paths.get(builder.cacheFileName != null ? builder.cacheFileName : DEFAULT_CACHE_FILE_NAME);
+        this.cacheSize = builder.cacheSize != null ? builder.cacheSize : DEFAULT_CACHE_SIZE;
+        this.tablebaseFile = Paths.get(builder.tablebaseFileName != null ? builder.tablebaseFileName : DEFAULT_TABLEBASE_FILE_NAME);
+        this.tablebaseThreshold = builder.tablebaseThreshold != null ? builder.tablebaseThreshold : DEFAULT_TABLEBASE_THRESHOLD;
+    }
+
+    public BeamScoring getBeamScoring() {
+        return beamScoring;
+    }
+
+    // Returns the most boards that a beam search keeps at each depth
+    public int getBeamWidth() {
+        return beamWidth;
+    }
+
+    // Returns the file in which solutions are kept so that boards that have been solved before are not solved again
+    public Path getCacheFile() {
+        return cacheFile;
+    }
+
+    // Returns the number of megabytes that the cache file may grow to before its least recently used solutions are
+    // evicted, or zero if solutions are never cached
+    public int getCacheSize() {
+        return cacheSize;
     }
 
     public DeviceService getDeviceService() {
@@ -84,18 +216,94 @@ public final class Configuration {
         return imageService;
     }
 
+    // Returns the number of milliseconds for which a Monte Carlo tree search plays out boards before giving up
+    public int getMctsTimeLimit() {
+        return mctsTimeLimit;
+    }
+
+    public MoveOrdering getMoveOrdering() {
+        return moveOrdering;
+    }
+
+    // Returns the most boards that a search which holds every board in memory may generate before giving up
+    public int getNodeLimit() {
+        return nodeLimit;
+    }
+
     public int getOffset() {
         return offset;
     }
 
+    public List<PruningRule> getPruningRules() {
+        return pruningRules;
+    }
+
+    // Returns the number of workers that restart searches concurrently, each with its own sequence of seeds
+    public int getRestartThreads() {
+        return restartThreads;
+    }
+
+    // Returns the number of boards that a restarting search may visit per unit of the Luby sequence before restarting
+    public int getRestartUnit() {
+        return restartUnit;
+    }
+
+    // Returns the seed from which every random choice made while solving is derived. Each worker draws from a sequence
+    // of its own, so solutions can be reproduced whenever a single worker is used.
+    public long getSeed() {
+        return seed;
+    }
+
     public SolutionService getSolutionService() {
         return solutionService;
     }
 
+    // Returns the directory in which frontiers too large to be held in memory are written
+    public Path getSpillDirectory() {
+        return spillDirectory;
+    }
+
+    // Returns the number of megabytes of boards that a frontier may hold in memory before it is spilled to disk, or
+    // zero if frontiers are never spilled
+    public int getSpillThreshold() {
+        return spillThreshold;
+    }
+
     public Point getStart() {
         return start;
     }
 
+    // Returns the tablebase written by TablebaseGenerator that is consulted for boards with few enough bricks
+    public Path getTablebaseFile() {
+        return tablebaseFile;
+    }
+
+    // Returns the number of bricks at or below which boards are looked up in the tablebase rather than searched, or
+    // zero if the tablebase is never consulted. Only the depth-first searches of the serial, parallel and forkjoin
+    // services consult it, so every other service ignores this.
+    public int getTablebaseThreshold() {
+        return tablebaseThreshold;
+    }
+
+    // Returns the number of milliseconds within which a solution is wanted, after which the best solution found so far
+    // is used, or zero if there is no limit
+    public int getTimeLimit() {
+        return timeLimit;
+    }
+
+    public ReplacementPolicy getTranspositionTableReplacement() {
+        return transpositionTableReplacement;
+    }
+
+    public int getTranspositionTableSize() {
+        return transpositionTableSize;
+    }
+
+    // Returns whether depth-first searches explore only one order of moves that can be applied in either order
+    public boolean isPartialOrderReduction() {
+        return partialOrderReduction;
+    }
+
     @Override
     public boolean equals(final Object obj) {
         if (obj == null) {
@@ -110,36 +318,287 @@ public final class Configuration {
 
         final Configuration other = (Configuration) obj;
         return new EqualsBuilder()
+            .append(beamScoring, other.beamScoring)
+            .append(beamWidth, other.beamWidth)
+            .append(cacheFile, other.cacheFile)
+            .append(cacheSize, other.cacheSize)
             .append(deviceService, other.deviceService)
             .append(imageFormat, other.imageFormat)
             .append(imageService, other.imageService)
+            .append(mctsTimeLimit, other.mctsTimeLimit)
+            .append(moveOrdering, other.moveOrdering)
+            .append(nodeLimit, other.nodeLimit)
             .append(offset, other.offset)
+            .append(partialOrderReduction, other.partialOrderReduction)
+            .append(pruningRules, other.pruningRules)
+            .append(restartThreads, other.restartThreads)
+            .append(restartUnit, other.restartUnit)
+            .append(seed, other.seed)
             .append(solutionService, other.solutionService)
+            .append(spillDirectory, other.spillDirectory)
+            .append(spillThreshold, other.spillThreshold)
             .append(start, other.start)
+            .append(tablebaseFile, other.tablebaseFile)
+            .append(tablebaseThreshold, other.tablebaseThreshold)
+            .append(timeLimit, other.timeLimit)
+            .append(transpositionTableReplacement, other.transpositionTableReplacement)
+            .append(transpositionTableSize, other.transpositionTableSize)
             .isEquals();
     }
 
     @Override
     public int hashCode() {
         return new HashCodeBuilder()
+            .append(beamScoring)
+            .append(beamWidth)
+            .append(cacheFile)
+            .append(cacheSize)
             .append(deviceService)
             .append(imageFormat)
             .append(imageService)
+            .append(mctsTimeLimit)
+            .append(moveOrdering)
+            .append(nodeLimit)
             .append(offset)
+            .append(partialOrderReduction)
+            .append(pruningRules)
+            .append(restartThreads)
+            .append(restartUnit)
+            .append(seed)
             .append(solutionService)
+            .append(spillDirectory)
+            .append(spillThreshold)
             .append(start)
+            .append(tablebaseFile)
+            .append(tablebaseThreshold)
+            .append(timeLimit)
+            .append(transpositionTableReplacement)
+            .append(transpositionTableSize)
             .hashCode();
     }
 
     @Override
     public String toString() {
         return new ToStringBuilder(this, CustomToStringStyle.LONG_STYLE)
+            .append("beamScoring", beamScoring)
+            .append("beamWidth", beamWidth)
+            .append("cacheFile", cacheFile)
+            .append("cacheSize", cacheSize)
             .append("deviceService", deviceService)
             .append("imageFormat", imageFormat)
             .append("imageService", imageService)
+            .append("mctsTimeLimit", mctsTimeLimit)
+            .append("moveOrdering", moveOrdering)
+            .append("nodeLimit", nodeLimit)
             .append("offset", offset)
+            .append("partialOrderReduction", partialOrderReduction)
+            .append("pruningRules", pruningRules)
+            .append("restartThreads", restartThreads)
+            .append("restartUnit", restartUnit)
+            .append("seed", seed)
             .append("solutionService", solutionService)
+            .append("spillDirectory", spillDirectory)
+            .append("spillThreshold", spillThreshold)
             .append("start", start)
+            .append("tablebaseFile", tablebaseFile)
+            .append("tablebaseThreshold", tablebaseThreshold)
+            .append("timeLimit", timeLimit)
+            .append("transpositionTableReplacement", transpositionTableReplacement)
+            .append("transpositionTableSize", transpositionTableSize)
             .toString();
     }
+
+    // Builds a configuration from the names of its services and the values of its settings, each of which falls back to
+    // its default when it is not given
+    public static final class Builder {
+
+        private static void requireNotNegative(final Integer value, final String name) {
+            if (value != null && value < 0) {
+                throw new IllegalArgumentException(String.format("%s must not be negative: %d", name, value));
+            }
+        }
+
+        private static void requirePositive(final Integer value, final String name) {
+            if (value != null && value <= 0) {
+                throw new IllegalArgumentException(String.format("%s must be positive: %d", name, value));
+            }
+        }
+
+        private String beamScoringName;
+        private Integer beamWidth;
+        private String cacheFileName;
+        private Integer cacheSize;
+        private String deviceServiceName;
+        private String imageFormatName;
+        private String imageServiceName;
+        private Integer mctsTimeLimit;
+        private String moveOrderingName;
+        private Integer nodeLimit;
+        private Integer offset;
+        private Boolean partialOrderReduction;
+        private String pruningRuleNames;
+        private Integer restartThreads;
+        private Integer restartUnit;
+        private Long seed;
+        private String solutionServiceName;
+        private String spillDirectoryName;
+        private Integer spillThreshold;
+        private Integer startX;
+        private Integer startY;
+        private String tablebaseFileName;
+        private Integer tablebaseThreshold;
+        private Integer timeLimit;
+        private String transpositionTableReplacementName;
+        private Integer transpositionTableSize;
+
+        public Builder() {
+        }
+
+        public Builder beamScoringName(final String beamScoringName) {
+            this.beamScoringName = beamScoringName;
+            return this;
+        }
+
+        public Builder beamWidth(final Integer beamWidth) {
+            this.beamWidth = beamWidth;
+            return this;
+        }
+
+        // Checks every value that was given before looking up the services, so that a value that no service could use
+        // is rejected here rather than once a board is being solved
+        public Configuration build() throws ServiceNotFoundException {
+            requirePositive(beamWidth, "beamWidth");
+            requireNotNegative(cacheSize, "cacheSize");
+            requirePositive(mctsTimeLimit, "mctsTimeLimit");
+            requirePositive(nodeLimit, "nodeLimit");
+            requirePositive(restartThreads, "restartThreads");
+            requirePositive(restartUnit, "restartUnit");
+            requireNotNegative(spillThreshold, "spillThreshold");
+            requireNotNegative(tablebaseThreshold, "tablebaseThreshold");
+            requireNotNegative(timeLimit, "timeLimit");
+            requireNotNegative(transpositionTableSize, "transpositionTableSize");
+
+            return new Configuration(this);
+        }
+
+        public Builder cacheFileName(final String cacheFileName) {
+            this.cacheFileName = cacheFileName;
+            return this;
+        }
+
+        public Builder cacheSize(final Integer cacheSize) {
+            this.cacheSize = cacheSize;
+            return this;
+        }
+
+        public Builder deviceServiceName(final String deviceServiceName) {
+            this.deviceServiceName = deviceServiceName;
+            return this;
+        }
+
+        public Builder imageFormatName(final String imageFormatName) {
+            this.imageFormatName = imageFormatName;
+            return this;
+        }
+
+        public Builder imageServiceName(final String imageServiceName) {
+            this.imageServiceName = imageServiceName;
+            return this;
+        }
+
+        public Builder mctsTimeLimit(final Integer mctsTimeLimit) {
+            this.mctsTimeLimit = mctsTimeLimit;
+            return this;
+        }
+
+        public Builder moveOrderingName(final String moveOrderingName) {
+            this.moveOrderingName = moveOrderingName;
+            return this;
+        }
+
+        public Builder nodeLimit(final Integer nodeLimit) {
+            this.nodeLimit = nodeLimit;
+            return this;
+        }
+
+        public Builder offset(final Integer offset) {
+            this.offset = offset;
+            return this;
+        }
+
+        public Builder partialOrderReduction(final Boolean partialOrderReduction) {
+            this.partialOrderReduction = partialOrderReduction;
+            return this;
+        }
+
+        public Builder pruningRuleNames(final String pruningRuleNames) {
+            this.pruningRuleNames = pruningRuleNames;
+            return this;
+        }
+
+        public Builder restartThreads(final Integer restartThreads) {
+            this.restartThreads = restartThreads;
+            return this;
+        }
+
+        public Builder restartUnit(final Integer restartUnit) {
+            this.restartUnit = restartUnit;
+            return this;
+        }
+
+        public Builder seed(final Long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        public Builder solutionServiceName(final String solutionServiceName) {
+            this.solutionServiceName = solutionServiceName;
+            return this;
+        }
+
+        public Builder spillDirectoryName(final String spillDirectoryName) {
+            this.spillDirectoryName = spillDirectoryName;
+            return this;
+        }
+
+        public Builder spillThreshold(final Integer spillThreshold) {
+            this.spillThreshold = spillThreshold;
+            return this;
+        }
+
+        public Builder startX(final Integer startX) {
+            this.startX = startX;
+            return this;
+        }
+
+        public Builder startY(final Integer startY) {
+            this.startY = startY;
+            return this;
+        }
+
+        public Builder tablebaseFileName(final String tablebaseFileName) {
+            this.tablebaseFileName = tablebaseFileName;
+            return this;
+        }
+
+        public Builder tablebaseThreshold(final Integer tablebaseThreshold) {
+            this.tablebaseThreshold = tablebaseThreshold;
+            return this;
+        }
+
+        public Builder timeLimit(final Integer timeLimit) {
+            this.timeLimit = timeLimit;
+            return this;
+        }
+
+        public Builder transpositionTableReplacementName(final String transpositionTableReplacementName) {
+            this.transpositionTableReplacementName = transpositionTableReplacementName;
+            return this;
+        }
+
+        public Builder transpositionTableSize(final Integer transpositionTableSize) {
+            this.transpositionTableSize = transpositionTableSize;
+            return this;
+        }
+    }
 }
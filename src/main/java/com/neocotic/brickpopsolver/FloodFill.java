@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2018 Alasdair Mercer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.neocotic.brickpopsolver;
+
+import java.util.Arrays;
+
+final class FloodFill {
+
+    static final int NEIGHBOR_COUNT = 4;
+    static final int NO_NEIGHBOR = -1;
+
+    private static final int INITIAL_CAPACITY = 128;
+    private static final ThreadLocal<FloodFill> INSTANCES = ThreadLocal.withInitial(FloodFill::new);
+
+    static FloodFill get() {
+        return INSTANCES.get();
+    }
+
+    // Builds a table of the up, right, down, and left neighbors for each cell index of a column-major grid. Boards
+    // derived from the grid only ever lose columns from the right so they can share the same table as long as right
+    // neighbors are checked against their own cell count.
+    static int[] neighbors(final int rows, final int columns) {
+        final int cellCount = rows * columns;
+        final int[] neighbors = new int[cellCount * NEIGHBOR_COUNT];
+
+        for (int index = 0; index < cellCount; index++) {
+            final int row = index % rows;
+            final int offset = index * NEIGHBOR_COUNT;
+
+            neighbors[offset] = row > 0 ? index - 1 : NO_NEIGHBOR;
+            neighbors[offset + 1] = index + rows < cellCount ? index + rows : NO_NEIGHBOR;
+            neighbors[offset + 2] = row < rows - 1 ? index + 1 : NO_NEIGHBOR;
+            neighbors[offset + 3] = index - rows >= 0 ? index - rows : NO_NEIGHBOR;
+        }
+
+        return neighbors;
+    }
+
+    private int[] flood = new int[INITIAL_CAPACITY];
+    private int[] stack = new int[INITIAL_CAPACITY];
+    private long[] visited = new long[INITIAL_CAPACITY >>> 6];
+
+    private FloodFill() {
+    }
+
+    int fill(final byte[] cells, final int cellCount, final int[] neighbors, final int index) {
+        ensureCapacity(cellCount);
+
+        final byte floodColor = cells[index];
+        int floodSize = 0;
+        int stackSize = 0;
+
+        visited[index >>> 6] |= 1L << index;
+        stack[stackSize++] = index;
+
+        while (stackSize > 0) {
+            final int location = stack[--stackSize];
+            final int offset = location * NEIGHBOR_COUNT;
+            flood[floodSize++] = location;
+
+            for (int i = offset; i < offset + NEIGHBOR_COUNT; i++) {
+                final int neighbor = neighbors[i];
+
+                if (neighbor != NO_NEIGHBOR && neighbor < cellCount && cells[neighbor] == floodColor && (visited[neighbor >>> 6] & (1L << neighbor)) == 0) {
+                    visited[neighbor >>> 6] |= 1L << neighbor;
+                    stack[stackSize++] = neighbor;
+                }
+            }
+        }
+
+        // Only flooded cells are ever marked so clearing them is enough to reset the bitset for the next fill
+        for (int i = 0; i < floodSize; i++) {
+            visited[flood[i] >>> 6] = 0;
+        }
+
+        return floodSize;
+    }
+
+    int[] getFlood() {
+        return flood;
+    }
+
+    private void ensureCapacity(final int cellCount) {
+        if (flood.length < cellCount) {
+            final int capacity = Math.max(cellCount, flood.length * 2);
+
+            flood = new int[capacity];
+            stack = new int[capacity];
+            visited = Arrays.copyOf(visited, (capacity + 63) >>> 6);
+        }
+    }
+}
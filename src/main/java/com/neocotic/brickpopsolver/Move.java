@@ -28,16 +28,37 @@ import org.apache.commons.lang3.builder.ToStringBuilder;
 
 public final class Move {
 
-    private final Board board;
+    private volatile Board board;
+    private final Components components;
     private final Coordinate coordinate;
+    private final int label;
+    private final Board parent;
 
     public Move(final Coordinate coordinate, final Board board) {
         this.coordinate = Objects.requireNonNull(coordinate, "coordinate");
         this.board = Objects.requireNonNull(board, "board");
+        this.parent = null;
+        this.components = null;
+        this.label = Components.NO_LABEL;
+    }
+
+    // Creates a move whose resulting board is only derived from the parent board when it is first requested
+    Move(final Coordinate coordinate, final Board parent, final Components components, final int label) {
+        this.coordinate = coordinate;
+        this.parent = parent;
+        this.components = components;
+        this.label = label;
     }
 
     public Board getBoard() {
-        return board;
+        // Racing threads can only ever derive and publish equal boards
+        Board result = board;
+        if (result == null) {
+            result = parent.popFrom(components, label);
+            board = result;
+        }
+
+        return result;
     }
 
     public Coordinate getCoordinate() {
@@ -58,7 +79,7 @@ public final class Move {
 
         final Move other = (Move) obj;
         return new EqualsBuilder()
-            .append(board, other.board)
+            .append(getBoard(), other.getBoard())
             .append(coordinate, other.coordinate)
             .isEquals();
     }
@@ -66,7 +87,7 @@ public final class Move {
     @Override
     public int hashCode() {
         return new HashCodeBuilder()
-            .append(board)
+            .append(getBoard())
             .append(coordinate)
             .hashCode();
     }
@@ -74,7 +95,7 @@ public final class Move {
     @Override
     public String toString() {
         return new ToStringBuilder(this, CustomToStringStyle.LONG_STYLE)
-            .append("board", board)
+            .append("board", getBoard())
             .append("coordinate", coordinate)
             .toString();
     }
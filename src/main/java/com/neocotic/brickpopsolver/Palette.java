@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2018 Alasdair Mercer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.neocotic.brickpopsolver;
+
+import java.util.Arrays;
+import java.util.Objects;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+public final class Palette {
+
+    public static final int EMPTY_ID = 0;
+    public static final int MAX_SIZE = 256;
+
+    // Open addressing table mapping RGB values to IDs, sized so that it can never be more than half full
+    private static final int TABLE_SIZE = MAX_SIZE * 2;
+
+    private final Color[] colors = new Color[MAX_SIZE];
+    private final int[] table = new int[TABLE_SIZE];
+    private int size;
+
+    public Palette() {
+        Arrays.fill(table, -1);
+
+        colors[EMPTY_ID] = Color.EMPTY;
+        size = 1;
+    }
+
+    public int intern(final Color color) {
+        Objects.requireNonNull(color, "color");
+
+        if (color.isEmpty()) {
+            return EMPTY_ID;
+        }
+
+        final int rgb = color.getRgb();
+        int slot = (rgb * 0x9e3779b9) >>> 23;
+
+        while (table[slot] != -1) {
+            final int id = table[slot];
+            if (colors[id].getRgb() == rgb) {
+                return id;
+            }
+
+            slot = (slot + 1) & (TABLE_SIZE - 1);
+        }
+
+        if (size >= MAX_SIZE) {
+            throw new IllegalStateException(String.format("Palette cannot contain more than %d colors", MAX_SIZE - 1));
+        }
+
+        final int id = size++;
+        colors[id] = color;
+        table[slot] = id;
+
+        return id;
+    }
+
+    public Color getColor(final int id) {
+        return colors[id];
+    }
+
+    public int getRgb(final int id) {
+        return colors[id].getRgb();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this, CustomToStringStyle.SHORT_STYLE)
+            .append("colors", Arrays.copyOf(colors, size))
+            .toString();
+    }
+}
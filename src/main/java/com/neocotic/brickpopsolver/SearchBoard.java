@@ -0,0 +1,528 @@
+/*
+ * Copyright (C) 2018 Alasdair Mercer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.neocotic.brickpopsolver;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+public final class SearchBoard {
+
+    private static final int EMPTY_ID = Palette.EMPTY_ID;
+    private static final int INITIAL_DEPTH_CAPACITY = 16;
+    private static final int SPAN_CLEARS_COLUMN = 1;
+
+    // Returns whether the moves with the given spans, as written by getMoves, can be applied in either order to produce
+    // the same board. Their groups must be separated by at least one column, so neither can reach the other, and the
+    // move on the left must not leave any column empty, as contraction would otherwise shift the move on the right.
+    // Moves remain at the same index after the other has been applied.
+    public static boolean isIndependent(final int span, final int otherSpan) {
+        final int left = Math.min(span, otherSpan);
+        final int right = Math.max(span, otherSpan);
+
+        return (left & SPAN_CLEARS_COLUMN) == 0 && (right >>> 16) > ((left >>> 1) & 0x7fff) + 1;
+    }
+
+    private int brickCount;
+    private final byte[] cells;
+    // Cells of a group within each column, used while working out spans
+    private final int[] columnCellCounts;
+    // Bricks of each color by ID, maintained as moves are applied and undone
+    private final int[] colorCounts;
+    private final long[] columnKeys;
+    private int columns;
+    private int depth;
+    private int distinctColorCount;
+    private long key;
+    private final int[] neighbors;
+    private final Palette palette;
+    private final int rows;
+    private boolean settled;
+    private final long[] visited;
+    private final Zobrist zobrist;
+
+    // The undo journal records, for each applied move, the state of the board before it was applied. Only columns from
+    // the first one that could be changed by the move onwards are recorded.
+    private int[] journalBrickCounts = new int[INITIAL_DEPTH_CAPACITY];
+    private byte[] journalCells;
+    private int journalCellsSize;
+    private byte[] journalColors = new byte[INITIAL_DEPTH_CAPACITY];
+    private long[] journalColumnKeys;
+    private int journalColumnKeysSize;
+    private int[] journalColumns = new int[INITIAL_DEPTH_CAPACITY];
+    private int[] journalFirstColumns = new int[INITIAL_DEPTH_CAPACITY];
+    private long[] journalKeys = new long[INITIAL_DEPTH_CAPACITY];
+    private boolean[] journalSettled = new boolean[INITIAL_DEPTH_CAPACITY];
+
+    public SearchBoard(final Board board) {
+        Objects.requireNonNull(board, "board");
+
+        cells = board.getCells().clone();
+        columnCellCounts = new int[board.getColumns()];
+        brickCount = board.getBrickCount();
+        colorCounts = board.getColorCounts().clone();
+        distinctColorCount = board.getDistinctColorCount();
+        columnKeys = board.getColumnKeys().clone();
+        columns = board.getColumns();
+        key = board.getKey();
+        neighbors = board.getNeighbors();
+        palette = board.getPalette();
+        rows = board.getRows();
+        settled = board.isSettled();
+        visited = new long[(cells.length + 63) >>> 6];
+        zobrist = board.getZobrist();
+        journalCells = new byte[cells.length];
+        journalColumnKeys = new long[columns];
+    }
+
+    public void apply(final Coordinate coordinate) {
+        Objects.requireNonNull(coordinate, "coordinate");
+
+        final int column = coordinate.getColumn();
+        final int row = coordinate.getRow();
+
+        if (row < 0 || row >= rows || column < 0 || column >= columns) {
+            throw new IndexOutOfBoundsException(String.format("Coordinate is outside of board: %s", coordinate));
+        }
+
+        apply((column * rows) + row);
+    }
+
+    public void apply(final int move) {
+        final int cellCount = rows * columns;
+
+        if (move < 0 || move >= cellCount || cells[move] == EMPTY_ID) {
+            throw new IllegalArgumentException(String.format("Move does not reference a cell on board: %d", move));
+        }
+
+        final FloodFill floodFill = FloodFill.get();
+        final int floodSize = floodFill.fill(cells, cellCount, neighbors, move);
+        // Flood pool must contain multiple elements to be popped
+        if (floodSize == 1) {
+            throw new IllegalArgumentException(String.format("Move does not reference a group of cells: %d", move));
+        }
+
+        final int[] flood = floodFill.getFlood();
+        int maxColumn = 0;
+        int minColumn = columns;
+
+        for (int i = 0; i < floodSize; i++) {
+            final int column = flood[i] / rows;
+
+            maxColumn = Math.max(maxColumn, column);
+            minColumn = Math.min(minColumn, column);
+        }
+
+        // Columns before the popped cells are left untouched by a pop and, once settled, cannot be changed by
+        // contraction
+        final int firstColumn = settled ? minColumn : 0;
+        final byte color = cells[move];
+        record(firstColumn, color);
+
+        for (int i = 0; i < floodSize; i++) {
+            cells[flood[i]] = EMPTY_ID;
+        }
+
+        brickCount -= floodSize;
+        colorCounts[color & 0xFF] -= floodSize;
+        if (colorCounts[color & 0xFF] == 0) {
+            distinctColorCount--;
+        }
+
+        contract(firstColumn, maxColumn);
+    }
+
+    public void undo() {
+        if (depth == 0) {
+            throw new IllegalStateException("No move has been applied");
+        }
+
+        depth--;
+
+        final int firstColumn = journalFirstColumns[depth];
+        final int previousColumns = journalColumns[depth];
+        final int recordedColumns = previousColumns - firstColumn;
+
+        journalCellsSize -= recordedColumns * rows;
+        journalColumnKeysSize -= recordedColumns;
+
+        System.arraycopy(journalCells, journalCellsSize, cells, firstColumn * rows, recordedColumns * rows);
+        System.arraycopy(journalColumnKeys, journalColumnKeysSize, columnKeys, firstColumn, recordedColumns);
+
+        final int color = journalColors[depth] & 0xFF;
+        if (colorCounts[color] == 0) {
+            distinctColorCount++;
+        }
+
+        colorCounts[color] += journalBrickCounts[depth] - brickCount;
+        brickCount = journalBrickCounts[depth];
+        columns = previousColumns;
+        key = journalKeys[depth];
+        settled = journalSettled[depth];
+    }
+
+    // Replaces the board with one that was previously encoded by a board from the same search, discarding every move
+    // that has been applied. Only settled boards can be decoded, which includes any board that a move has been applied
+    // to.
+    public void decode(final byte[] source, final int offset) {
+        System.arraycopy(source, offset, cells, 0, cells.length);
+
+        restore();
+    }
+
+    // Behaves like decode for boards that were encoded into a buffer, which is left untouched so that it can be read by
+    // more than one board at once
+    public void decode(final ByteBuffer source, final int offset) {
+        final ByteBuffer view = source.duplicate();
+        view.position(offset);
+        view.get(cells);
+
+        restore();
+    }
+
+    // Writes the cells of the board into the target, starting at the offset, padded with empty cells to the encoded
+    // length so that every board within a search can be stored at a fixed width
+    public void encode(final byte[] target, final int offset) {
+        final int cellCount = rows * columns;
+
+        System.arraycopy(cells, 0, target, offset, cellCount);
+        Arrays.fill(target, offset + cellCount, offset + cells.length, (byte) EMPTY_ID);
+    }
+
+    // Behaves like encode for boards that are to be stored in a buffer, leaving the position of the buffer untouched
+    public void encode(final ByteBuffer target, final int offset) {
+        final int cellCount = rows * columns;
+        final ByteBuffer view = target.duplicate();
+        view.position(offset);
+        view.put(cells, 0, cellCount);
+
+        for (int i = cellCount; i < cells.length; i++) {
+            view.put((byte) EMPTY_ID);
+        }
+    }
+
+    public int getBrickCount() {
+        return brickCount;
+    }
+
+    public int getColorCount(final int id) {
+        return colorCounts[id];
+    }
+
+    // Returns the ID of the color of the cell at the given position, which is only ever the empty ID for cells above
+    // the bricks within a column
+    public int getColorId(final int row, final int column) {
+        if (row < 0 || row >= rows || column < 0 || column >= columns) {
+            throw new IndexOutOfBoundsException(String.format("Position is outside of board: %d,%d", row, column));
+        }
+
+        return cells[(column * rows) + row] & 0xFF;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public Coordinate getCoordinate(final int move) {
+        return new Coordinate(move % rows, move / rows);
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public int getDistinctColorCount() {
+        return distinctColorCount;
+    }
+
+    public int getEncodedLength() {
+        return cells.length;
+    }
+
+    // Returns the number of cells within the group of the given move
+    public int getGroupSize(final int move) {
+        final int cellCount = rows * columns;
+
+        if (move < 0 || move >= cellCount || cells[move] == EMPTY_ID) {
+            throw new IllegalArgumentException(String.format("Move does not reference a cell on board: %d", move));
+        }
+
+        return FloodFill.get().fill(cells, cellCount, neighbors, move);
+    }
+
+    public long getKey() {
+        return key;
+    }
+
+    public int getMaxMoveCount() {
+        // Every move pops at least two cells
+        return (rows * columns) / 2;
+    }
+
+    // Writes the moves available on the board into the given array, starting at the offset, and returns how many were
+    // written. Moves are identified by the first cell of their group when reading the board, in that same order.
+    public int getMoves(final int[] moves, final int offset) {
+        return getMoves(moves, null, offset);
+    }
+
+    // As getMoves, but also writes the span of each move into the given array at the same position as the move. A span
+    // packs the first and last columns of the group together with whether popping it would leave any column empty,
+    // which is always assumed of boards that have yet to settle, and is only meaningful to isIndependent.
+    public int getMoves(final int[] moves, final int[] spans, final int offset) {
+        final int cellCount = rows * columns;
+        final FloodFill floodFill = FloodFill.get();
+        int count = 0;
+
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < columns; j++) {
+                final int index = (j * rows) + i;
+
+                if (cells[index] == EMPTY_ID || (visited[index >>> 6] & (1L << index)) != 0) {
+                    continue;
+                }
+
+                final int floodSize = floodFill.fill(cells, cellCount, neighbors, index);
+                final int[] flood = floodFill.getFlood();
+
+                for (int k = 0; k < floodSize; k++) {
+                    visited[flood[k] >>> 6] |= 1L << flood[k];
+                }
+
+                // Group must contain multiple cells to be popped
+                if (floodSize > 1) {
+                    if (spans != null) {
+                        spans[offset + count] = getSpan(flood, floodSize);
+                    }
+
+                    moves[offset + count++] = index;
+                }
+            }
+        }
+
+        Arrays.fill(visited, 0, (cellCount + 63) >>> 6, 0L);
+
+        return count;
+    }
+
+    public int getPaletteSize() {
+        return colorCounts.length;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    // Counts the bricks that share no side with a brick of the same color and so cannot currently be popped
+    public int getSingletonCount() {
+        final int cellCount = rows * columns;
+        int count = 0;
+
+        for (int index = 0; index < cellCount; index++) {
+            final byte cell = cells[index];
+            if (cell == EMPTY_ID) {
+                continue;
+            }
+
+            final int offset = index * FloodFill.NEIGHBOR_COUNT;
+            boolean grouped = false;
+
+            for (int i = offset; i < offset + FloodFill.NEIGHBOR_COUNT && !grouped; i++) {
+                final int neighbor = neighbors[i];
+
+                grouped = neighbor != FloodFill.NO_NEIGHBOR && neighbor < cellCount && cells[neighbor] == cell;
+            }
+
+            if (!grouped) {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    public boolean isSolved() {
+        return columns == 0;
+    }
+
+    public Board toBoard() {
+        final int cellCount = rows * columns;
+
+        return new Board(palette, neighbors, zobrist, Arrays.copyOf(cells, cellCount), colorCounts.clone(), Arrays.copyOf(columnKeys, columns), key, rows, columns, settled);
+    }
+
+    private void contract(final int firstColumn, final int dirtyEndColumn) {
+        int contractedColumns = firstColumn;
+
+        for (int j = firstColumn; j < columns; j++) {
+            final int columnStart = j * rows;
+            final int contractedStart = contractedColumns * rows;
+            long columnKey = 0;
+
+            key ^= zobrist.column(columnKeys[j], j);
+
+            if (settled && j > dirtyEndColumn) {
+                // Columns after the popped cells are unchanged other than potentially being shifted to the left
+                if (contractedStart != columnStart) {
+                    System.arraycopy(cells, columnStart, cells, contractedStart, rows);
+                }
+
+                columnKey = columnKeys[j];
+            } else {
+                // Non-empty cells fall to the bottom of the column while retaining their order. Cells are only ever
+                // written to positions that have already been read so the column can be contracted in place.
+                int target = contractedStart + rows;
+
+                for (int i = rows - 1; i >= 0; i--) {
+                    final byte cell = cells[columnStart + i];
+
+                    if (cell != EMPTY_ID) {
+                        cells[--target] = cell;
+                        columnKey ^= zobrist.cell(target - contractedStart, cell & 0xFF);
+                    }
+                }
+
+                // Columns left without any cells are removed entirely, shifting all following columns to the left
+                if (target == contractedStart + rows) {
+                    continue;
+                }
+
+                Arrays.fill(cells, contractedStart, target, (byte) EMPTY_ID);
+            }
+
+            columnKeys[contractedColumns] = columnKey;
+            key ^= zobrist.column(columnKey, contractedColumns);
+            contractedColumns++;
+        }
+
+        columns = contractedColumns;
+        settled = true;
+    }
+
+    private int getSpan(final int[] flood, final int floodSize) {
+        int maxColumn = 0;
+        int minColumn = columns;
+
+        for (int i = 0; i < floodSize; i++) {
+            final int column = flood[i] / rows;
+
+            columnCellCounts[column]++;
+            maxColumn = Math.max(maxColumn, column);
+            minColumn = Math.min(minColumn, column);
+        }
+
+        boolean clearsColumn = !settled;
+
+        for (int j = minColumn; j <= maxColumn; j++) {
+            // Cells of settled columns are all at the bottom so the column is emptied if the group reaches the top cell
+            final int topIndex = ((j + 1) * rows) - columnCellCounts[j] - 1;
+            if (columnCellCounts[j] == rows || cells[topIndex] == EMPTY_ID) {
+                clearsColumn = true;
+            }
+
+            columnCellCounts[j] = 0;
+        }
+
+        return (minColumn << 16) | (maxColumn << 1) | (clearsColumn ? SPAN_CLEARS_COLUMN : 0);
+    }
+
+    private void record(final int firstColumn, final byte color) {
+        if (depth == journalColumns.length) {
+            final int capacity = depth * 2;
+
+            journalBrickCounts = Arrays.copyOf(journalBrickCounts, capacity);
+            journalColors = Arrays.copyOf(journalColors, capacity);
+            journalColumns = Arrays.copyOf(journalColumns, capacity);
+            journalFirstColumns = Arrays.copyOf(journalFirstColumns, capacity);
+            journalKeys = Arrays.copyOf(journalKeys, capacity);
+            journalSettled = Arrays.copyOf(journalSettled, capacity);
+        }
+
+        final int recordedColumns = columns - firstColumn;
+        final int recordedCells = recordedColumns * rows;
+
+        if (journalCellsSize + recordedCells > journalCells.length) {
+            journalCells = Arrays.copyOf(journalCells, Math.max(journalCells.length * 2, journalCellsSize + recordedCells));
+        }
+        if (journalColumnKeysSize + recordedColumns > journalColumnKeys.length) {
+            journalColumnKeys = Arrays.copyOf(journalColumnKeys, Math.max(journalColumnKeys.length * 2, journalColumnKeysSize + recordedColumns));
+        }
+
+        System.arraycopy(cells, firstColumn * rows, journalCells, journalCellsSize, recordedCells);
+        System.arraycopy(columnKeys, firstColumn, journalColumnKeys, journalColumnKeysSize, recordedColumns);
+
+        journalCellsSize += recordedCells;
+        journalColumnKeysSize += recordedColumns;
+        journalBrickCounts[depth] = brickCount;
+        journalColors[depth] = color;
+        journalColumns[depth] = columns;
+        journalFirstColumns[depth] = firstColumn;
+        journalKeys[depth] = key;
+        journalSettled[depth] = settled;
+        depth++;
+    }
+
+    // Recomputes everything that is derived from the cells, which are expected to hold a settled board
+    private void restore() {
+        Arrays.fill(colorCounts, 0);
+        brickCount = 0;
+        columns = 0;
+        depth = 0;
+        distinctColorCount = 0;
+        journalCellsSize = 0;
+        journalColumnKeysSize = 0;
+        key = 0;
+        settled = true;
+
+        // Every column of a settled board has a brick in its bottom row and any columns after the last are empty
+        final int maxColumns = cells.length / rows;
+        while (columns < maxColumns && cells[(columns * rows) + rows - 1] != EMPTY_ID) {
+            final int columnStart = columns * rows;
+            long columnKey = 0;
+
+            for (int i = 0; i < rows; i++) {
+                final int id = cells[columnStart + i] & 0xFF;
+
+                if (id != EMPTY_ID) {
+                    columnKey ^= zobrist.cell(i, id);
+                    brickCount++;
+
+                    if (colorCounts[id]++ == 0) {
+                        distinctColorCount++;
+                    }
+                }
+            }
+
+            columnKeys[columns] = columnKey;
+            key ^= zobrist.column(columnKey, columns);
+            columns++;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this, CustomToStringStyle.LONG_STYLE)
+            .append("board", toBoard())
+            .append("depth", depth)
+            .toString();
+    }
+}
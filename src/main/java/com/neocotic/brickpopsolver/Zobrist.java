@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2018 Alasdair Mercer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.neocotic.brickpopsolver;
+
+final class Zobrist {
+
+    // Keys are derived from RGB values and positions rather than drawn at random so that equal boards always share the
+    // same key, even when they were built with different palettes
+    static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+        value = (value ^ (value >>> 27)) * 0x94d049bb133111ebL;
+        return value ^ (value >>> 31);
+    }
+
+    private final long[] cellKeys;
+    private final long[] columnSalts;
+    private final int paletteSize;
+
+    Zobrist(final Palette palette, final int rows, final int columns) {
+        paletteSize = palette.size();
+        cellKeys = new long[rows * paletteSize];
+        columnSalts = new long[columns];
+
+        for (int i = 0; i < rows; i++) {
+            // Empty cells are left with a key of zero so that they never contribute to a column key
+            for (int id = Palette.EMPTY_ID + 1; id < paletteSize; id++) {
+                cellKeys[(i * paletteSize) + id] = mix(((long) palette.getRgb(id) << 32) | i);
+            }
+        }
+
+        for (int j = 0; j < columns; j++) {
+            // Salts must be odd for multiplication to preserve every bit of a column key
+            columnSalts[j] = mix(~j) | 1;
+        }
+    }
+
+    long cell(final int row, final int id) {
+        return cellKeys[(row * paletteSize) + id];
+    }
+
+    long column(final long columnKey, final int column) {
+        return columnKey * columnSalts[column];
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2018 Alasdair Mercer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.neocotic.brickpopsolver.solution;
+
+import com.neocotic.brickpopsolver.SearchBoard;
+
+// Scores boards for a beam search, where boards with lower scores are considered closer to being solved
+public enum BeamScoring {
+
+    // Fewest bricks left
+    BRICKS {
+        @Override
+        public int score(final SearchBoard board) {
+            return board.getBrickCount();
+        }
+    },
+    // Fewest colors left, then the fewest bricks that cannot currently be popped
+    COLORS {
+        @Override
+        public int score(final SearchBoard board) {
+            return (board.getDistinctColorCount() << 16) | board.getSingletonCount();
+        }
+    },
+    // Fewest bricks that cannot currently be popped, then the fewest bricks left
+    SINGLETONS {
+        @Override
+        public int score(final SearchBoard board) {
+            return (board.getSingletonCount() << 16) | board.getBrickCount();
+        }
+    };
+
+    public abstract int score(SearchBoard board);
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2018 Alasdair Mercer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.neocotic.brickpopsolver.solution;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+import com.neocotic.brickpopsolver.CustomToStringStyle;
+import com.neocotic.brickpopsolver.SearchBoard;
+
+// Stores boards encoded at a fixed width outside of the heap, in pages of direct memory, so that searches holding
+// millions of boards neither pay for an object per board nor leave the garbage collector with more to trace as they
+// grow. Boards are referenced by the handle returned when they were added, and the handles of boards that have been
+// freed are reused. An arena is not safe for use by more than one thread at once.
+//
+// Only A* keeps its boards here, as it otherwise held an object for each of them. Breadth-first and beam frontiers
+// already hold theirs in a handful of large arrays, which the collector does not trace into, and build them in slices
+// that are short lived, which would only churn pages of direct memory.
+public final class BoardArena {
+
+    private static final int INITIAL_FREE_CAPACITY = 64;
+    private static final int PAGE_SIZE = 1 << 22;
+
+    private final int boardsPerPage;
+    private final int encodedLength;
+    private int[] freeHandles = new int[INITIAL_FREE_CAPACITY];
+    private int freeSize;
+    private int handleCount;
+    private final List<ByteBuffer> pages = new ArrayList<>();
+
+    public BoardArena(final int encodedLength) {
+        if (encodedLength <= 0 || encodedLength > PAGE_SIZE) {
+            throw new IllegalArgumentException(String.format("Encoded length is out of range: %d", encodedLength));
+        }
+
+        this.encodedLength = encodedLength;
+        this.boardsPerPage = PAGE_SIZE / encodedLength;
+    }
+
+    // Returns the handle of the board, which remains valid until it is freed
+    public int add(final SearchBoard board) {
+        final int handle;
+        if (freeSize > 0) {
+            handle = freeHandles[--freeSize];
+        } else {
+            if (handleCount == Integer.MAX_VALUE) {
+                throw new IllegalStateException("Arena cannot hold any more boards");
+            }
+
+            handle = handleCount++;
+
+            if (handle / boardsPerPage == pages.size()) {
+                pages.add(ByteBuffer.allocateDirect(boardsPerPage * encodedLength));
+            }
+        }
+
+        board.encode(pages.get(handle / boardsPerPage), (handle % boardsPerPage) * encodedLength);
+
+        return handle;
+    }
+
+    public void decode(final int handle, final SearchBoard board) {
+        board.decode(pages.get(handle / boardsPerPage), (handle % boardsPerPage) * encodedLength);
+    }
+
+    // Frees the handle so that it can be reused by the next board to be added
+    public void free(final int handle) {
+        if (freeSize == freeHandles.length) {
+            freeHandles = Arrays.copyOf(freeHandles, freeSize * 2);
+        }
+
+        freeHandles[freeSize++] = handle;
+    }
+
+    public long getCapacity() {
+        return (long) pages.size() * boardsPerPage;
+    }
+
+    public int size() {
+        return handleCount - freeSize;
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this, CustomToStringStyle.SHORT_STYLE)
+            .append("size", size())
+            .append("capacity", getCapacity())
+            .append("pages", pages.size())
+            .toString();
+    }
+}
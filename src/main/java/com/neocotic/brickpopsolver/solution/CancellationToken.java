@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2018 Alasdair Mercer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.neocotic.brickpopsolver.solution;
+
+import java.util.Objects;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+import com.neocotic.brickpopsolver.CustomToStringStyle;
+
+public final class CancellationToken {
+
+    private volatile boolean cancelled;
+    private final Deadline deadline;
+
+    public CancellationToken() {
+        this(new Deadline(0));
+    }
+
+    // Creates a token that also cancels itself once the deadline passes
+    public CancellationToken(final Deadline deadline) {
+        this.deadline = Objects.requireNonNull(deadline, "deadline");
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public Deadline getDeadline() {
+        return deadline;
+    }
+
+    public boolean isCancelled() {
+        if (!cancelled && deadline.isExpired()) {
+            cancelled = true;
+        }
+
+        return cancelled;
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this, CustomToStringStyle.SHORT_STYLE)
+            .append("cancelled", cancelled)
+            .append("deadline", deadline)
+            .toString();
+    }
+}
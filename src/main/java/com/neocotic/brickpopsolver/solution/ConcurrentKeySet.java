@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2018 Alasdair Mercer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.neocotic.brickpopsolver.solution;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+import com.neocotic.brickpopsolver.CustomToStringStyle;
+
+// An open addressing set of board keys, like KeySet, that any number of threads can add to at once without locks. As
+// slots cannot be moved safely while other threads are probing them, the set never grows and must be created large
+// enough for every key that will be added to it.
+public final class ConcurrentKeySet {
+
+    private static int slot(final long key, final int mask) {
+        return (int) ((key * 0x9e3779b97f4a7c15L) >>> 32) & mask;
+    }
+
+    private final AtomicBoolean containsZero = new AtomicBoolean();
+    private final AtomicLongArray keys;
+    private final int maxSize;
+    private final AtomicInteger size = new AtomicInteger();
+
+    public ConcurrentKeySet(final int maxSize) {
+        if (maxSize < 0 || maxSize > (1 << 28)) {
+            throw new IllegalArgumentException(String.format("maxSize must be between 0 and 2^28: %d", maxSize));
+        }
+
+        this.maxSize = maxSize;
+        // Table is kept no more than half full so that probe sequences stay short
+        this.keys = new AtomicLongArray(Math.max(Integer.highestOneBit(Math.max(maxSize, 1)) * 4, 2));
+    }
+
+    public boolean add(final long key) {
+        if (key == 0) {
+            final boolean added = containsZero.compareAndSet(false, true);
+            if (added) {
+                size.incrementAndGet();
+            }
+
+            return added;
+        }
+
+        final int mask = keys.length() - 1;
+        int slot = slot(key, mask);
+
+        while (true) {
+            final long current = keys.get(slot);
+
+            if (current == key) {
+                return false;
+            }
+            if (current == 0) {
+                if (keys.compareAndSet(slot, 0, key)) {
+                    if (size.incrementAndGet() > maxSize) {
+                        throw new IllegalStateException(String.format("Set cannot hold more than %d keys", maxSize));
+                    }
+
+                    return true;
+                }
+
+                // Another thread claimed the slot first so it is read again, as it may have added the same key
+                continue;
+            }
+
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    public boolean contains(final long key) {
+        if (key == 0) {
+            return containsZero.get();
+        }
+
+        final int mask = keys.length() - 1;
+        int slot = slot(key, mask);
+        long current;
+
+        while ((current = keys.get(slot)) != 0) {
+            if (current == key) {
+                return true;
+            }
+
+            slot = (slot + 1) & mask;
+        }
+
+        return false;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this, CustomToStringStyle.SHORT_STYLE)
+            .append("size", size())
+            .append("capacity", keys.length())
+            .toString();
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2018 Alasdair Mercer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.neocotic.brickpopsolver.solution;
+
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+import com.neocotic.brickpopsolver.Configuration;
+import com.neocotic.brickpopsolver.CustomToStringStyle;
+
+// The point in time by which a solution is wanted, after which searches stop and return the best solution that they
+// have found, if any. A time limit of zero means that there is no deadline.
+public final class Deadline {
+
+    private final long nanos;
+    private final long timeLimit;
+
+    public Deadline(final long timeLimit) {
+        if (timeLimit < 0) {
+            throw new IllegalArgumentException(String.format("timeLimit must not be negative: %d", timeLimit));
+        }
+
+        this.nanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeLimit);
+        this.timeLimit = timeLimit;
+    }
+
+    public Deadline(final Configuration configuration) {
+        this(configuration.getTimeLimit());
+    }
+
+    // Returns whichever of this deadline and one at the given time limit from now passes first
+    public Deadline within(final long timeLimit) {
+        final Deadline other = new Deadline(timeLimit);
+        if (!isLimited() || (other.isLimited() && other.nanos - nanos < 0)) {
+            return other;
+        }
+
+        return this;
+    }
+
+    public long getRemainingMillis() {
+        if (!isLimited()) {
+            return Long.MAX_VALUE;
+        }
+
+        return Math.max(TimeUnit.NANOSECONDS.toMillis(nanos - System.nanoTime()), 0);
+    }
+
+    public long getTimeLimit() {
+        return timeLimit;
+    }
+
+    public boolean isExpired() {
+        return isLimited() && System.nanoTime() - nanos >= 0;
+    }
+
+    public boolean isLimited() {
+        return timeLimit > 0;
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this, CustomToStringStyle.SHORT_STYLE)
+            .append("timeLimit", timeLimit)
+            .append("remaining", isLimited() ? getRemainingMillis() : null)
+            .toString();
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2018 Alasdair Mercer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.neocotic.brickpopsolver.solution;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+import com.neocotic.brickpopsolver.CustomToStringStyle;
+
+// An open addressing set of board keys that avoids boxing every key. Zero is the key of every solved board so it is
+// tracked separately from the table, where it marks an empty slot.
+public final class KeySet {
+
+    private static final int INITIAL_CAPACITY = 1 << 10;
+
+    private static int slot(final long key, final int mask) {
+        return (int) ((key * 0x9e3779b97f4a7c15L) >>> 32) & mask;
+    }
+
+    private boolean containsZero;
+    private long[] keys = new long[INITIAL_CAPACITY];
+    private int size;
+
+    public boolean add(final long key) {
+        if (key == 0) {
+            final boolean added = !containsZero;
+            containsZero = true;
+            if (added) {
+                size++;
+            }
+
+            return added;
+        }
+
+        // Table is kept no more than half full so that probe sequences stay short
+        if ((size + 1) * 2 > keys.length) {
+            resize();
+        }
+
+        final int mask = keys.length - 1;
+        int slot = slot(key, mask);
+
+        while (keys[slot] != 0) {
+            if (keys[slot] == key) {
+                return false;
+            }
+
+            slot = (slot + 1) & mask;
+        }
+
+        keys[slot] = key;
+        size++;
+
+        return true;
+    }
+
+    public boolean contains(final long key) {
+        if (key == 0) {
+            return containsZero;
+        }
+
+        final int mask = keys.length - 1;
+        int slot = slot(key, mask);
+
+        while (keys[slot] != 0) {
+            if (keys[slot] == key) {
+                return true;
+            }
+
+            slot = (slot + 1) & mask;
+        }
+
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void resize() {
+        final long[] previousKeys = keys;
+        keys = new long[previousKeys.length * 2];
+
+        final int mask = keys.length - 1;
+        for (final long key : previousKeys) {
+            if (key != 0) {
+                int slot = slot(key, mask);
+                while (keys[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+
+                keys[slot] = key;
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this, CustomToStringStyle.SHORT_STYLE)
+            .append("size", size)
+            .append("capacity", keys.length)
+            .toString();
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2018 Alasdair Mercer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.neocotic.brickpopsolver.solution;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+import com.neocotic.brickpopsolver.Configuration;
+import com.neocotic.brickpopsolver.CustomToStringStyle;
+import com.neocotic.brickpopsolver.SearchBoard;
+
+// Applies rules in order to prove boards unsolvable before they are searched, counting how many boards each rule cut
+// off. A single pipeline can be shared between concurrent searches.
+public final class PruningPipeline {
+
+    private final LongAdder checkCount = new LongAdder();
+    private final LongAdder[] cutCounts;
+    private final PruningRule[] rules;
+
+    public PruningPipeline(final Configuration configuration) {
+        this(configuration.getPruningRules());
+    }
+
+    public PruningPipeline(final List<PruningRule> rules) {
+        Objects.requireNonNull(rules, "rules");
+
+        this.rules = rules.toArray(new PruningRule[0]);
+        cutCounts = new LongAdder[this.rules.length];
+
+        for (int i = 0; i < this.rules.length; i++) {
+            Objects.requireNonNull(this.rules[i], "rule");
+            cutCounts[i] = new LongAdder();
+        }
+    }
+
+    public boolean isUnsolvable(final SearchBoard board) {
+        if (rules.length == 0) {
+            return false;
+        }
+
+        checkCount.increment();
+
+        for (int i = 0; i < rules.length; i++) {
+            if (rules[i].isUnsolvable(board)) {
+                cutCounts[i].increment();
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    public long getCheckCount() {
+        return checkCount.sum();
+    }
+
+    public long getCutCount() {
+        long count = 0;
+        for (final LongAdder cutCount : cutCounts) {
+            count += cutCount.sum();
+        }
+
+        return count;
+    }
+
+    // Returns how many boards were cut off by each rule, keyed by rule name and in the order the rules are applied
+    public Map<String, Long> getCutCounts() {
+        final Map<String, Long> counts = new LinkedHashMap<>();
+        for (int i = 0; i < rules.length; i++) {
+            counts.merge(rules[i].getServiceName(), cutCounts[i].sum(), Long::sum);
+        }
+
+        return counts;
+    }
+
+    public List<PruningRule> getRules() {
+        return Collections.unmodifiableList(Arrays.asList(rules));
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this, CustomToStringStyle.SHORT_STYLE)
+            .append("checks", getCheckCount())
+            .append("cuts", getCutCounts())
+            .toString();
+    }
+}
@@ -0,0 +1,429 @@
+/*
+ * Copyright (C) 2018 Alasdair Mercer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.neocotic.brickpopsolver.solution;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.zip.CRC32;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.neocotic.brickpopsolver.Board;
+import com.neocotic.brickpopsolver.Coordinate;
+import com.neocotic.brickpopsolver.CustomToStringStyle;
+import com.neocotic.brickpopsolver.SearchBoard;
+
+// Keeps the steps of solved boards in a memory-mapped file of a fixed size so that boards that have been solved before,
+// even by an earlier process, are not solved again. Solutions are appended as records, each keyed by the board key,
+// which is derived from the colors and positions of its cells alone, along with the size of the board, and holding
+// every step packed into a single byte. A checksum is written with each record so that one left incomplete by a crash
+// is detected when the file is next opened, and every record after it is discarded. Records are left to the operating
+// system to write out, which it does even should the process crash, and are only forced to disk when the file is
+// compacted or closed. Once the file is full, it is rewritten with only the most recently used half of its solutions
+// and atomically moved over the original. Keys can be shared by different boards, so the steps of a record are only
+// returned once they have been replayed on the board and found to solve it.
+public final class SolutionCache implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(SolutionCache.class);
+
+    private static final int HEADER_LENGTH = Integer.BYTES * 2;
+    private static final int MAGIC = 0x42505343;
+    // Boards must fit within this many rows and columns for each step to be packed into a single byte
+    private static final int MAX_DIMENSION = 16;
+    private static final int MAX_STEP_COUNT = 0xFFFF;
+    // Each record starts with the length and checksum of its payload, which is the board key, its rows and columns,
+    // and the number of steps followed by the steps themselves
+    private static final int RECORD_HEADER_LENGTH = Integer.BYTES * 2;
+    private static final int PAYLOAD_HEADER_LENGTH = Long.BYTES + 2 + Short.BYTES;
+    private static final int VERSION = 1;
+
+    private static int getChecksum(final ByteBuffer buffer, final int offset, final int length) {
+        final ByteBuffer view = buffer.duplicate();
+        view.position(offset);
+        view.limit(offset + length);
+
+        final CRC32 checksum = new CRC32();
+        checksum.update(view);
+
+        return (int) checksum.getValue();
+    }
+
+    // Returns whether applying the steps to the board, in turn, pops a group each time and leaves the board empty
+    private static boolean isSolution(final Board board, final List<Coordinate> steps) {
+        final SearchBoard searchBoard = new SearchBoard(board);
+
+        try {
+            for (final Coordinate step : steps) {
+                searchBoard.apply(step);
+            }
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            return false;
+        }
+
+        return searchBoard.isSolved();
+    }
+
+    // Locks the file opened by the channel, closing the channel if it is already locked by this or another process
+    private static FileLock lock(final FileChannel channel, final Path file) throws IOException {
+        FileLock lock;
+        try {
+            lock = channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            // Thrown instead when the file is already locked within this process
+            lock = null;
+        }
+
+        if (lock == null) {
+            channel.close();
+
+            throw new IOException("Solution cache is already in use: " + file);
+        }
+
+        return lock;
+    }
+
+    private MappedByteBuffer buffer;
+    private final int capacity;
+    private FileChannel channel;
+    private int end;
+    private final Path file;
+    // Iterated from the least to the most recently used solution
+    private final Map<Long, Integer> index = new LinkedHashMap<>(16, 0.75f, true);
+    private FileLock lock;
+
+    public SolutionCache(final Path file, final int capacity) throws IOException {
+        this.file = Objects.requireNonNull(file, "file");
+        this.capacity = capacity;
+
+        if (capacity < HEADER_LENGTH + RECORD_HEADER_LENGTH + PAYLOAD_HEADER_LENGTH) {
+            throw new IllegalArgumentException(String.format("Capacity is too small: %d", capacity));
+        }
+
+        open();
+
+        if (end > capacity) {
+            try {
+                compact();
+            } catch (IOException | RuntimeException e) {
+                close();
+
+                throw e;
+            }
+        }
+    }
+
+    // Closes the file, after which nothing more is cached and no solutions are found
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            try {
+                buffer.force();
+                lock.release();
+                channel.close();
+            } finally {
+                reset();
+            }
+        }
+    }
+
+    // Returns the steps of the solution for the board, or null if it has not been cached
+    public synchronized List<Coordinate> get(final Board board) {
+        if (channel == null) {
+            return null;
+        }
+
+        final Integer offset = index.get(board.getKey());
+        if (offset == null) {
+            return null;
+        }
+
+        final int payload = offset + RECORD_HEADER_LENGTH;
+        final int rows = buffer.get(payload + Long.BYTES) & 0xFF;
+        final int columns = buffer.get(payload + Long.BYTES + 1) & 0xFF;
+        // Boards of different sizes are only expected to share a key by chance
+        if (rows != board.getRows() || columns != board.getColumns()) {
+            return null;
+        }
+
+        final int stepCount = buffer.getShort(payload + Long.BYTES + 2) & 0xFFFF;
+        final List<Coordinate> steps = new ArrayList<>(stepCount);
+
+        for (int i = 0; i < stepCount; i++) {
+            final int step = buffer.get(payload + PAYLOAD_HEADER_LENGTH + i) & 0xFF;
+
+            steps.add(new Coordinate(step / MAX_DIMENSION, step % MAX_DIMENSION));
+        }
+
+        if (!isSolution(board, steps)) {
+            logger.warn("Ignoring cached solution that does not solve board:{}{}", System.lineSeparator(), board);
+
+            // Any solution cached for the board afterwards replaces the record, which is then no longer kept when the
+            // file is compacted
+            index.remove(board.getKey());
+
+            return null;
+        }
+
+        return steps;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    // Appends the steps of the solution for the board, returning whether they were cached, as solutions for boards that
+    // are too large to be packed are not, nor are any once the cache has been closed
+    public synchronized boolean put(final Board board, final List<Coordinate> steps) throws IOException {
+        if (channel == null || board.getRows() > MAX_DIMENSION || board.getColumns() > MAX_DIMENSION || steps.size() > MAX_STEP_COUNT) {
+            return false;
+        }
+
+        final int recordLength = RECORD_HEADER_LENGTH + PAYLOAD_HEADER_LENGTH + steps.size();
+        if (HEADER_LENGTH + recordLength > capacity) {
+            return false;
+        }
+
+        if (end + recordLength > capacity) {
+            compact();
+
+            if (end + recordLength > capacity) {
+                return false;
+            }
+        }
+
+        final int payload = end + RECORD_HEADER_LENGTH;
+        final int payloadLength = recordLength - RECORD_HEADER_LENGTH;
+
+        buffer.putLong(payload, board.getKey());
+        buffer.put(payload + Long.BYTES, (byte) board.getRows());
+        buffer.put(payload + Long.BYTES + 1, (byte) board.getColumns());
+        buffer.putShort(payload + Long.BYTES + 2, (short) steps.size());
+
+        for (int i = 0; i < steps.size(); i++) {
+            final Coordinate step = steps.get(i);
+
+            buffer.put(payload + PAYLOAD_HEADER_LENGTH + i, (byte) ((step.getRow() * MAX_DIMENSION) + step.getColumn()));
+        }
+
+        // The length is written last so that a record is never seen before the rest of it has been written
+        buffer.putInt(end + Integer.BYTES, getChecksum(buffer, payload, payloadLength));
+        buffer.putInt(end, payloadLength);
+
+        index.put(board.getKey(), end);
+        end += recordLength;
+
+        return true;
+    }
+
+    public synchronized int size() {
+        return index.size();
+    }
+
+    // Rewrites the file with the most recently used solutions that fit within half of its capacity, in the order that
+    // they were last used, and replaces the original with it
+    private void compact() throws IOException {
+        final List<Integer> offsets = new ArrayList<>(index.values());
+        int start = offsets.size();
+        int length = HEADER_LENGTH;
+
+        while (start > 0) {
+            final int recordLength = RECORD_HEADER_LENGTH + buffer.getInt(offsets.get(start - 1));
+            if (length + recordLength > capacity / 2) {
+                break;
+            }
+
+            length += recordLength;
+            start--;
+        }
+
+        final Path target = file.resolveSibling(file.getFileName() + ".tmp");
+        final FileChannel targetChannel = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        boolean replaced = false;
+
+        try {
+            // The rewritten file is locked before it replaces the original, whose lock is held until then, so that no
+            // other process can ever open the cache part way through
+            final FileLock targetLock = lock(targetChannel, target);
+            final MappedByteBuffer targetBuffer = targetChannel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+            targetBuffer.putInt(0, MAGIC);
+            targetBuffer.putInt(Integer.BYTES, VERSION);
+            targetBuffer.position(HEADER_LENGTH);
+
+            for (final int offset : offsets.subList(start, offsets.size())) {
+                final ByteBuffer record = buffer.duplicate();
+                record.position(offset);
+                record.limit(offset + RECORD_HEADER_LENGTH + buffer.getInt(offset));
+
+                targetBuffer.put(record);
+            }
+
+            targetBuffer.force();
+
+            logger.debug("Evicting {} of {} cached solutions", start, offsets.size());
+
+            Files.move(target, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            replaced = true;
+
+            // Closing the channel of the original also releases its lock
+            channel.close();
+            buffer = targetBuffer;
+            channel = targetChannel;
+            lock = targetLock;
+
+            load();
+        } catch (IOException | RuntimeException e) {
+            if (replaced) {
+                // The original is gone, so the cache is closed rather than left reading from one file while locking
+                // the other
+                try {
+                    targetChannel.close();
+                } catch (IOException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+
+                reset();
+            } else {
+                // The original is left untouched and still in use
+                try {
+                    targetChannel.close();
+                    Files.deleteIfExists(target);
+                } catch (IOException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+            }
+
+            throw e;
+        }
+    }
+
+    // Reads every complete record from the start of the buffer into the index
+    private void load() {
+        index.clear();
+        end = HEADER_LENGTH;
+
+        while (end + RECORD_HEADER_LENGTH + PAYLOAD_HEADER_LENGTH <= buffer.limit()) {
+            final int payloadLength = buffer.getInt(end);
+            final int payload = end + RECORD_HEADER_LENGTH;
+
+            if (payloadLength < PAYLOAD_HEADER_LENGTH || payload + payloadLength > buffer.limit()) {
+                break;
+            }
+
+            final int stepCount = buffer.getShort(payload + Long.BYTES + 2) & 0xFFFF;
+            if (payloadLength != PAYLOAD_HEADER_LENGTH + stepCount || buffer.getInt(end + Integer.BYTES) != getChecksum(buffer, payload, payloadLength)) {
+                break;
+            }
+
+            // Later records replace any earlier ones for the same board
+            index.put(buffer.getLong(payload), end);
+            end = payload + payloadLength;
+        }
+    }
+
+    private void open() throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            lock = lock(channel, file);
+        } catch (IOException e) {
+            channel = null;
+
+            throw e;
+        }
+
+        try {
+            // A file written with a larger capacity is read in full, and then compacted to fit
+            final long size = Math.max(capacity, channel.size());
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Solution cache is too large: " + file);
+            }
+
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+
+            final int magic = buffer.getInt(0);
+            final int version = buffer.getInt(Integer.BYTES);
+
+            if (magic == 0 && version == 0) {
+                buffer.putInt(0, MAGIC);
+                buffer.putInt(Integer.BYTES, VERSION);
+            } else if (magic != MAGIC || version != VERSION) {
+                throw new IOException("File is not a solution cache: " + file);
+            }
+
+            load();
+
+            // Anything after the last complete record was left by a crash and is cleared so that it can never be
+            // mistaken for a record once new ones have been appended in its place
+            if (end + Integer.BYTES <= buffer.limit() && buffer.getInt(end) != 0) {
+                logger.warn("Discarding incomplete solutions from cache: {}", file);
+
+                for (int i = end; i < buffer.limit(); i++) {
+                    buffer.put(i, (byte) 0);
+                }
+
+                buffer.force();
+            }
+        } catch (IOException | RuntimeException e) {
+            lock.release();
+            channel.close();
+            reset();
+
+            throw e;
+        }
+    }
+
+    // Forgets the file and every solution read from it, leaving the cache closed
+    private void reset() {
+        buffer = null;
+        channel = null;
+        lock = null;
+        index.clear();
+        end = HEADER_LENGTH;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return new ToStringBuilder(this, CustomToStringStyle.SHORT_STYLE)
+            .append("file", file)
+            .append("size", index.size())
+            .append("capacity", capacity)
+            .toString();
+    }
+}
@@ -21,8 +21,9 @@
  */
 package com.neocotic.brickpopsolver.solution;
 
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.Callable;
@@ -32,18 +33,70 @@ import org.slf4j.LoggerFactory;
 import com.neocotic.brickpopsolver.Configuration;
 import com.neocotic.brickpopsolver.Coordinate;
 import com.neocotic.brickpopsolver.Move;
+import com.neocotic.brickpopsolver.SearchBoard;
+import com.neocotic.brickpopsolver.solution.tablebase.Tablebase;
 
 public final class SolutionSearch implements Callable<Solution> {
 
     private static final Logger logger = LoggerFactory.getLogger(SolutionSearch.class);
 
+    // Megabytes of the table given to a search that was not passed one. Such a table is only ever used by that search,
+    // so it is kept small rather than sized for the configuration.
+    private static final int OWN_TRANSPOSITION_TABLE_SIZE = 1;
+    // Marks the span of a move that was skipped because it was asleep
+    private static final int SKIPPED = -1;
+
+    // Returns the tablebase that searches are to consult, if any. Services should call this before starting any
+    // searches so that a tablebase that cannot be opened fails the solve, as each search would otherwise fail in a way
+    // that cannot be told apart from the board being unsolvable.
+    public static Tablebase getTablebase(final Configuration configuration) throws SolutionException {
+        try {
+            return Tablebase.get(configuration);
+        } catch (IOException e) {
+            throw new SolutionException("Failed to open tablebase: " + configuration.getTablebaseFile(), e);
+        }
+    }
+
+    private boolean cancelled;
+    private final CancellationToken cancellationToken;
+    // Spans of moves by their index on the board, used to keep spans in line with moves once they have been sorted
+    private int[] cellSpans;
     private final Configuration configuration;
+    private int lowestBrickCount;
     private final Move move;
+    private int[] moves;
+    private MoveSorter moveSorter;
+    private int[] path;
+    private final PruningPipeline pruningPipeline;
+    private final boolean reduced;
+    // Sleep sets of every board on the current path, stacked one after another, holding moves that need not be searched
+    // from the board as they are independent of every move since one of its ancestors where they were searched
+    private int[] sleepMoves;
+    private int[] sleepSpans;
     private Solution solution;
+    private int[] spans;
+    private Tablebase tablebase;
+    private final TranspositionTable transpositionTable;
 
     public SolutionSearch(final Configuration configuration, final Move move) {
+        this(configuration, move, new TranspositionTable(OWN_TRANSPOSITION_TABLE_SIZE, configuration.getTranspositionTableReplacement()));
+    }
+
+    public SolutionSearch(final Configuration configuration, final Move move, final TranspositionTable transpositionTable) {
+        this(configuration, move, transpositionTable, new CancellationToken());
+    }
+
+    public SolutionSearch(final Configuration configuration, final Move move, final TranspositionTable transpositionTable, final CancellationToken cancellationToken) {
+        this(configuration, move, transpositionTable, cancellationToken, new PruningPipeline(configuration));
+    }
+
+    public SolutionSearch(final Configuration configuration, final Move move, final TranspositionTable transpositionTable, final CancellationToken cancellationToken, final PruningPipeline pruningPipeline) {
         this.configuration = Objects.requireNonNull(configuration, "configuration");
         this.move = Objects.requireNonNull(move, "move");
+        this.transpositionTable = Objects.requireNonNull(transpositionTable, "transpositionTable");
+        this.cancellationToken = Objects.requireNonNull(cancellationToken, "cancellationToken");
+        this.pruningPipeline = Objects.requireNonNull(pruningPipeline, "pruningPipeline");
+        this.reduced = configuration.isPartialOrderReduction();
     }
 
     @Override
@@ -54,8 +107,36 @@ public final class SolutionSearch implements Callable<Solution> {
     public Solution search() throws SolutionException {
         logger.trace("search:enter()");
 
-        search(Collections.singletonList(move), Collections.emptyList());
+        // A single board is walked depth-first, applying each move on the way down and undoing it on the way back up
+        final SearchBoard board = new SearchBoard(move.getBoard());
+        moves = new int[board.getMaxMoveCount()];
+        lowestBrickCount = board.getBrickCount();
+        moveSorter = configuration.getMoveOrdering().createSorter(board);
+        path = new int[board.getMaxMoveCount()];
+
+        tablebase = getTablebase(configuration);
+
+        if (reduced) {
+            cellSpans = new int[board.getEncodedLength()];
+            sleepMoves = new int[board.getMaxMoveCount()];
+            sleepSpans = new int[board.getMaxMoveCount()];
+            spans = new int[moves.length];
+        }
+
+        if (search(board, 0, 0, 0)) {
+            final List<Coordinate> steps = new ArrayList<>();
+            steps.add(move.getCoordinate());
+
+            for (int i = 0; i < board.getDepth(); i++) {
+                steps.add(board.getCoordinate(path[i]));
+            }
+
+            solution = new Solution(configuration, steps);
+        }
 
+        if (cancelled) {
+            throw new SolutionException(String.format("Cancelled search for move: %s", move));
+        }
         if (solution == null) {
             throw new SolutionException(String.format("Could not solve move: %s", move));
         }
@@ -64,20 +145,142 @@ public final class SolutionSearch implements Callable<Solution> {
         return solution;
     }
 
-    private void search(final List<Move> moves, final List<Coordinate> steps) {
-        for (final Move move : moves) {
-            if (solution != null) {
-                break;
+    private boolean search(final SearchBoard board, final int offset, final int sleepOffset, final int sleepCount) {
+        lowestBrickCount = Math.min(lowestBrickCount, board.getBrickCount());
+
+        if (board.isSolved()) {
+            return true;
+        }
+        if (isCancelled()) {
+            return false;
+        }
+
+        // Boards with few enough bricks are answered exactly by the tablebase, which also fills in the rest of the path
+        if (tablebase != null && board.getBrickCount() <= configuration.getTablebaseThreshold() && tablebase.contains(board)) {
+            return tablebase.solve(board, path, board.getDepth()) >= 0;
+        }
+
+        if (transpositionTable.isUnsolvable(board.getKey())) {
+            return false;
+        }
+        if (pruningPipeline.isUnsolvable(board)) {
+            return false;
+        }
+
+        if (offset + board.getMaxMoveCount() > moves.length) {
+            moves = Arrays.copyOf(moves, Math.max(moves.length * 2, offset + board.getMaxMoveCount()));
+
+            if (reduced) {
+                spans = Arrays.copyOf(spans, moves.length);
+            }
+        }
+
+        final int count;
+
+        if (reduced) {
+            count = board.getMoves(moves, spans, offset);
+
+            for (int i = offset; i < offset + count; i++) {
+                cellSpans[moves[i]] = spans[i];
             }
 
-            final List<Coordinate> solutionSteps = new ArrayList<>(steps);
-            solutionSteps.add(move.getCoordinate());
+            moveSorter.sort(board, moves, offset, count);
 
-            if (move.getBoard().isSolved()) {
-                solution = new Solution(configuration, solutionSteps);
-            } else {
-                search(move.getBoard().getAvailableMoves(), solutionSteps);
+            for (int i = offset; i < offset + count; i++) {
+                spans[i] = cellSpans[moves[i]];
             }
+        } else {
+            count = board.getMoves(moves, offset);
+            moveSorter.sort(board, moves, offset, count);
         }
+
+        final int childSleepOffset = sleepOffset + sleepCount;
+
+        for (int i = offset; i < offset + count; i++) {
+            int childSleepCount = 0;
+
+            if (reduced) {
+                if (isAsleep(moves[i], sleepOffset, sleepCount)) {
+                    spans[i] = SKIPPED;
+                    continue;
+                }
+
+                childSleepCount = putToSleep(i, offset, sleepOffset, sleepCount, childSleepOffset);
+            }
+
+            // The fewest bricks reached beneath each move are tracked separately before being merged back in
+            final int lowestBrickCount = this.lowestBrickCount;
+            this.lowestBrickCount = board.getBrickCount();
+
+            path[board.getDepth()] = moves[i];
+            board.apply(moves[i]);
+
+            if (search(board, offset + count, childSleepOffset, childSleepCount)) {
+                return true;
+            }
+
+            board.undo();
+
+            if (cancelled) {
+                return false;
+            }
+
+            moveSorter.exhausted(board, moves[i], this.lowestBrickCount);
+            this.lowestBrickCount = Math.min(lowestBrickCount, this.lowestBrickCount);
+        }
+
+        // Every move has been exhausted so the board can be skipped wherever else it is reached
+        transpositionTable.addUnsolvable(board.getKey(), board.getBrickCount());
+
+        return false;
+    }
+
+    private boolean isAsleep(final int move, final int sleepOffset, final int sleepCount) {
+        for (int i = sleepOffset; i < sleepOffset + sleepCount; i++) {
+            if (sleepMoves[i] == move) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    // Writes the sleep set for the board reached by the move at the given index, made up of every move that is asleep
+    // on the current board or has already been searched from it, which is independent of that move, and returns its
+    // size. Whichever order such moves are applied in, the boards they lead to have already been searched.
+    private int putToSleep(final int index, final int offset, final int sleepOffset, final int sleepCount, final int childSleepOffset) {
+        final int capacity = childSleepOffset + sleepCount + (index - offset);
+        if (capacity > sleepMoves.length) {
+            sleepMoves = Arrays.copyOf(sleepMoves, Math.max(sleepMoves.length * 2, capacity));
+            sleepSpans = Arrays.copyOf(sleepSpans, sleepMoves.length);
+        }
+
+        final int span = spans[index];
+        int count = 0;
+
+        for (int i = sleepOffset; i < sleepOffset + sleepCount; i++) {
+            if (SearchBoard.isIndependent(sleepSpans[i], span)) {
+                sleepMoves[childSleepOffset + count] = sleepMoves[i];
+                sleepSpans[childSleepOffset + count] = sleepSpans[i];
+                count++;
+            }
+        }
+        for (int i = offset; i < index; i++) {
+            if (spans[i] != SKIPPED && SearchBoard.isIndependent(spans[i], span)) {
+                sleepMoves[childSleepOffset + count] = moves[i];
+                sleepSpans[childSleepOffset + count] = spans[i];
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    private boolean isCancelled() {
+        if (!cancelled && (cancellationToken.isCancelled() || Thread.currentThread().isInterrupted())) {
+            cancelled = true;
+        }
+
+        return cancelled;
     }
 }
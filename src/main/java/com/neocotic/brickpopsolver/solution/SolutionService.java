@@ -28,4 +28,21 @@ import com.neocotic.brickpopsolver.service.Service;
 public interface SolutionService extends Service {
 
     Solution solve(Board board, Configuration configuration) throws SolutionException;
+
+    // Solves the board, passing any solutions to the listener as they are found, and returns the best one found before
+    // the time limit of the configuration passed, which will be empty if none were found. Services that only find a
+    // solution once they are done pass it on to the listener just before it is returned.
+    default Solution solve(final Board board, final Configuration configuration, final SolutionListener listener) throws SolutionException {
+        final Solution solution = solve(board, configuration);
+        if (!solution.isEmpty()) {
+            listener.found(solution);
+        }
+
+        return solution;
+    }
+
+    // Releases any threads kept by the service between solves. The service may still be used afterwards, in which case
+    // they are created again as needed.
+    default void shutdown() {
+    }
 }
@@ -0,0 +1,199 @@
+/*
+ * Copyright (C) 2018 Alasdair Mercer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.neocotic.brickpopsolver.solution;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+import com.neocotic.brickpopsolver.Configuration;
+import com.neocotic.brickpopsolver.CustomToStringStyle;
+
+public final class TranspositionTable {
+
+    private static final int BUCKET_SIZE = 4;
+    private static final int ENTRY_BYTES = Long.BYTES;
+    private static final int MAX_WEIGHT = 0xff;
+    private static final long SIGNATURE_MASK = ~0xffL;
+
+    private final int bucketMask;
+    private final int capacity;
+    // Each entry packs the key of an unsolvable board, less its lowest bits, together with a weight held in those bits
+    // so that entries can be read and written atomically without locks. A zero entry is empty. Entries are only
+    // allocated once the first board is added, so that solves which never need them do not pay for them.
+    private volatile AtomicLongArray entries;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder probes = new LongAdder();
+    private final ReplacementPolicy replacementPolicy;
+    private final LongAdder stores = new LongAdder();
+
+    public TranspositionTable(final int size, final ReplacementPolicy replacementPolicy) {
+        if (size < 0) {
+            throw new IllegalArgumentException(String.format("size must not be negative: %d", size));
+        }
+
+        this.replacementPolicy = Objects.requireNonNull(replacementPolicy, "replacementPolicy");
+
+        final long bucketCount = ((long) size << 20) / (ENTRY_BYTES * BUCKET_SIZE);
+        if (bucketCount > 0) {
+            final int buckets = Integer.highestOneBit((int) Math.min(bucketCount, Integer.MAX_VALUE / BUCKET_SIZE));
+
+            capacity = buckets * BUCKET_SIZE;
+            bucketMask = buckets - 1;
+        } else {
+            capacity = 0;
+            bucketMask = 0;
+        }
+    }
+
+    public TranspositionTable(final Configuration configuration) {
+        this(configuration.getTranspositionTableSize(), configuration.getTranspositionTableReplacement());
+    }
+
+    // Records the key of a board whose moves have all been exhausted without finding a solution, where the weight
+    // reflects how expensive that was (e.g. the number of bricks that remained)
+    public void addUnsolvable(final long key, final int weight) {
+        final long signature = key & SIGNATURE_MASK;
+        if (capacity == 0 || signature == 0) {
+            return;
+        }
+
+        final AtomicLongArray entries = getEntries();
+        final long entry = signature | Math.min(Math.max(weight, 0), MAX_WEIGHT);
+        final int start = getBucketStart(key);
+        int victim = -1;
+        long victimWeight = Long.MAX_VALUE;
+
+        for (int i = start; i < start + BUCKET_SIZE; i++) {
+            final long current = entries.get(i);
+
+            if ((current & SIGNATURE_MASK) == signature) {
+                return;
+            }
+            if (current == 0 && entries.compareAndSet(i, 0, entry)) {
+                stores.increment();
+                return;
+            }
+            if ((current & ~SIGNATURE_MASK) < victimWeight) {
+                victim = i;
+                victimWeight = current & ~SIGNATURE_MASK;
+            }
+        }
+
+        switch (replacementPolicy) {
+        case ALWAYS:
+            victim = start + (int) ((key >>> 8) & (BUCKET_SIZE - 1));
+            break;
+        case PREFER_LARGER:
+            if (victimWeight > (entry & ~SIGNATURE_MASK)) {
+                return;
+            }
+            break;
+        default:
+            throw new IllegalStateException(String.format("Unsupported replacement policy: %s", replacementPolicy));
+        }
+
+        // Racing writers may overwrite each other's entries, which is harmless as the table is only ever a cache
+        entries.set(victim, entry);
+        stores.increment();
+    }
+
+    public boolean isUnsolvable(final long key) {
+        final long signature = key & SIGNATURE_MASK;
+        if (capacity == 0 || signature == 0) {
+            return false;
+        }
+
+        probes.increment();
+
+        final AtomicLongArray entries = this.entries;
+        if (entries == null) {
+            return false;
+        }
+
+        final int start = getBucketStart(key);
+        for (int i = start; i < start + BUCKET_SIZE; i++) {
+            if ((entries.get(i) & SIGNATURE_MASK) == signature) {
+                hits.increment();
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private int getBucketStart(final long key) {
+        return ((int) (key >>> 32) & bucketMask) * BUCKET_SIZE;
+    }
+
+    private AtomicLongArray getEntries() {
+        AtomicLongArray result = entries;
+        if (result == null) {
+            synchronized (this) {
+                result = entries;
+                if (result == null) {
+                    result = new AtomicLongArray(capacity);
+                    entries = result;
+                }
+            }
+        }
+
+        return result;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public double getHitRate() {
+        final long probeCount = probes.sum();
+        return probeCount > 0 ? (double) hits.sum() / probeCount : 0;
+    }
+
+    public long getProbeCount() {
+        return probes.sum();
+    }
+
+    public ReplacementPolicy getReplacementPolicy() {
+        return replacementPolicy;
+    }
+
+    public long getStoreCount() {
+        return stores.sum();
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this, CustomToStringStyle.SHORT_STYLE)
+            .append("capacity", getCapacity())
+            .append("probes", getProbeCount())
+            .append("hits", getHitCount())
+            .append("hitRate", String.format("%.2f%%", getHitRate() * 100))
+            .append("stores", getStoreCount())
+            .toString();
+    }
+}
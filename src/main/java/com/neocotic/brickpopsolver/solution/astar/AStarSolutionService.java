@@ -0,0 +1,255 @@
+/*
+ * Copyright (C) 2018 Alasdair Mercer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.neocotic.brickpopsolver.solution.astar;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.neocotic.brickpopsolver.Board;
+import com.neocotic.brickpopsolver.Configuration;
+import com.neocotic.brickpopsolver.Coordinate;
+import com.neocotic.brickpopsolver.SearchBoard;
+import com.neocotic.brickpopsolver.service.AbstractService;
+import com.neocotic.brickpopsolver.solution.BoardArena;
+import com.neocotic.brickpopsolver.solution.Deadline;
+import com.neocotic.brickpopsolver.solution.KeySet;
+import com.neocotic.brickpopsolver.solution.PruningPipeline;
+import com.neocotic.brickpopsolver.solution.Solution;
+import com.neocotic.brickpopsolver.solution.SolutionException;
+import com.neocotic.brickpopsolver.solution.SolutionService;
+
+// Finds a solution with the fewest possible steps, as every step is played on the device at a considerable cost. Boards
+// waiting to be expanded are held encoded in an arena outside of the heap, with every node of the search kept in
+// primitive tables and the open list as a heap of packed entries, so that the search creates no objects per board.
+public final class AStarSolutionService extends AbstractService implements SolutionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AStarSolutionService.class);
+
+    public static final String SERVICE_NAME = "astar";
+
+    // Boards never have more cells than this, so no more moves can be taken to solve one
+    private static final int MAX_MOVE_COUNT = 0xFFFF;
+
+    @Override
+    public String getServiceName() {
+        return SERVICE_NAME;
+    }
+
+    // Every color left on the board needs at least one more move to clear it, and a move only ever clears one color,
+    // so the number of colors can never overestimate the moves that remain. Boards that are further along are preferred
+    // between those with equal estimates to reach a solution sooner, and then those that were generated first.
+    private static long getEntry(final int moveCount, final int colorCount, final int node) {
+        return ((long) (moveCount + colorCount) << 48) | ((long) (MAX_MOVE_COUNT - moveCount) << 32) | (node & 0xFFFFFFFFL);
+    }
+
+    @Override
+    public Solution solve(final Board board, final Configuration configuration) throws SolutionException {
+        logger.trace("solve:enter(board={}, configuration={})", board, configuration);
+
+        logger.debug("Attempting to solve board:{}{}", System.lineSeparator(), board);
+
+        final Deadline deadline = new Deadline(configuration);
+        final KeySet expanded = new KeySet();
+        final int nodeLimit = configuration.getNodeLimit();
+        final OpenList open = new OpenList();
+        final PruningPipeline pruningPipeline = new PruningPipeline(configuration);
+        // The board being solved is never encoded as it may not yet be settled
+        final SearchBoard root = new SearchBoard(board);
+        final SearchBoard searchBoard = new SearchBoard(board);
+        final BoardArena arena = new BoardArena(searchBoard.getEncodedLength());
+        final Nodes nodes = new Nodes();
+        final int[] moves = new int[searchBoard.getMaxMoveCount()];
+        int nodeCount = 1;
+        List<Coordinate> steps = board.isSolved() ? new LinkedList<>() : null;
+
+        open.add(getEntry(0, root.getDistinctColorCount(), nodes.add(-1, -1, root.getKey(), -1)));
+
+        while (steps == null && nodeCount < nodeLimit && !open.isEmpty() && !deadline.isExpired()) {
+            final long entry = open.poll();
+            final int node = (int) entry;
+            final int moveCount = MAX_MOVE_COUNT - (int) ((entry >>> 32) & MAX_MOVE_COUNT);
+            final int handle = nodes.handles[node];
+
+            // Boards are only needed again to be expanded, after which their steps are traced through their nodes
+            if (handle >= 0) {
+                arena.free(handle);
+            }
+
+            // Estimates are consistent so the first time that a board is expanded is always along a shortest path to it
+            if (!expanded.add(nodes.keys[node])) {
+                continue;
+            }
+
+            final SearchBoard current;
+            if (handle >= 0) {
+                arena.decode(handle, searchBoard);
+                current = searchBoard;
+            } else {
+                current = root;
+            }
+
+            final int count = current.getMoves(moves, 0);
+
+            for (int i = 0; i < count && steps == null && nodeCount < nodeLimit; i++) {
+                current.apply(moves[i]);
+
+                if (current.isSolved()) {
+                    // Every other board waiting to be expanded is estimated to need at least as many steps as this one
+                    // took, so there is no need to wait for it to be taken from the queue
+                    steps = getSteps(current, nodes, node, moves[i]);
+                } else if (!expanded.contains(current.getKey()) && !pruningPipeline.isUnsolvable(current)) {
+                    final int child = nodes.add(node, moves[i], current.getKey(), arena.add(current));
+
+                    open.add(getEntry(moveCount + 1, current.getDistinctColorCount(), child));
+                    nodeCount++;
+                }
+
+                current.undo();
+            }
+        }
+
+        logger.debug("Expanded {} boards out of {} generated", expanded.size(), nodeCount);
+        logger.debug("Arena usage: {}", arena);
+        logger.debug("Pruning usage: {}", pruningPipeline);
+
+        final Solution solution = new Solution(configuration, steps);
+
+        if (!solution.isEmpty() || board.isSolved()) {
+            logger.debug("Found solution:{}{}", System.lineSeparator(), solution);
+        } else if (deadline.isExpired()) {
+            logger.warn("No solution found within time limit: {}ms", configuration.getTimeLimit());
+        } else if (nodeCount >= nodeLimit) {
+            logger.warn("No solution found within node limit: {}", nodeLimit);
+        } else {
+            logger.warn("No solution found");
+        }
+
+        logger.trace("solve:exit({})", solution);
+        return solution;
+    }
+
+    private List<Coordinate> getSteps(final SearchBoard searchBoard, final Nodes nodes, final int parent, final int move) {
+        final LinkedList<Coordinate> steps = new LinkedList<>();
+        steps.addFirst(searchBoard.getCoordinate(move));
+
+        for (int node = parent; nodes.parents[node] >= 0; node = nodes.parents[node]) {
+            steps.addFirst(searchBoard.getCoordinate(nodes.moves[node]));
+        }
+
+        return steps;
+    }
+
+    // The nodes of the search, each being the move that reached a board, the node of the board that it was applied to,
+    // the key of the board, and its handle within the arena until it has been expanded
+    private static final class Nodes {
+
+        private static final int INITIAL_CAPACITY = 64;
+
+        private int[] handles = new int[INITIAL_CAPACITY];
+        private long[] keys = new long[INITIAL_CAPACITY];
+        private int[] moves = new int[INITIAL_CAPACITY];
+        private int[] parents = new int[INITIAL_CAPACITY];
+        private int size;
+
+        int add(final int parent, final int move, final long key, final int handle) {
+            if (size == parents.length) {
+                final int newCapacity = size * 2;
+
+                handles = Arrays.copyOf(handles, newCapacity);
+                keys = Arrays.copyOf(keys, newCapacity);
+                moves = Arrays.copyOf(moves, newCapacity);
+                parents = Arrays.copyOf(parents, newCapacity);
+            }
+
+            handles[size] = handle;
+            keys[size] = key;
+            moves[size] = move;
+            parents[size] = parent;
+
+            return size++;
+        }
+    }
+
+    // A binary heap of entries, each packing the estimate, the moves taken, and the node of a board into a single long
+    // so that the ordering of entries is that of their values
+    private static final class OpenList {
+
+        private static final int INITIAL_CAPACITY = 64;
+
+        private long[] entries = new long[INITIAL_CAPACITY];
+        private int size;
+
+        void add(final long entry) {
+            if (size == entries.length) {
+                entries = Arrays.copyOf(entries, size * 2);
+            }
+
+            int index = size++;
+            while (index > 0) {
+                final int parent = (index - 1) / 2;
+                if (entries[parent] <= entry) {
+                    break;
+                }
+
+                entries[index] = entries[parent];
+                index = parent;
+            }
+
+            entries[index] = entry;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        long poll() {
+            final long result = entries[0];
+            final long last = entries[--size];
+
+            int index = 0;
+            while (true) {
+                int child = (index * 2) + 1;
+                if (child >= size) {
+                    break;
+                }
+
+                if (child + 1 < size && entries[child + 1] < entries[child]) {
+                    child++;
+                }
+
+                if (last <= entries[child]) {
+                    break;
+                }
+
+                entries[index] = entries[child];
+                index = child;
+            }
+
+            entries[index] = last;
+
+            return result;
+        }
+    }
+}
@@ -0,0 +1,292 @@
+/*
+ * Copyright (C) 2018 Alasdair Mercer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.neocotic.brickpopsolver.solution.beam;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.neocotic.brickpopsolver.Board;
+import com.neocotic.brickpopsolver.Configuration;
+import com.neocotic.brickpopsolver.Coordinate;
+import com.neocotic.brickpopsolver.SearchBoard;
+import com.neocotic.brickpopsolver.service.AbstractService;
+import com.neocotic.brickpopsolver.solution.BeamScoring;
+import com.neocotic.brickpopsolver.solution.Deadline;
+import com.neocotic.brickpopsolver.solution.KeySet;
+import com.neocotic.brickpopsolver.solution.PruningPipeline;
+import com.neocotic.brickpopsolver.solution.Solution;
+import com.neocotic.brickpopsolver.solution.SolutionException;
+import com.neocotic.brickpopsolver.solution.SolutionService;
+
+// Searches breadth-first, only keeping the best scoring boards at each depth, so that time and memory are bounded by
+// the width of the beam rather than the size of the board. Solutions are not guaranteed to be found even when they
+// exist, so the search fails once it runs out of boards after having left any out, so that the caller can fall back on
+// an exhaustive service. An empty solution is only returned when time runs out or when no board was ever left out, in
+// which case the board cannot be solved.
+public final class BeamSolutionService extends AbstractService implements SolutionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BeamSolutionService.class);
+
+    public static final String SERVICE_NAME = "beam";
+
+    // Boards within each depth are expanded in parallel in slices of this many
+    private static final int SLICE_SIZE = 64;
+
+    @Override
+    public String getServiceName() {
+        return SERVICE_NAME;
+    }
+
+    @Override
+    public Solution solve(final Board board, final Configuration configuration) throws SolutionException {
+        logger.trace("solve:enter(board={}, configuration={})", board, configuration);
+
+        logger.debug("Attempting to solve board:{}{}", System.lineSeparator(), board);
+
+        final Deadline deadline = new Deadline(configuration);
+        final int width = configuration.getBeamWidth();
+        final PruningPipeline pruningPipeline = new PruningPipeline(configuration);
+        final SearchBoard searchBoard = new SearchBoard(board);
+        // Each depth is kept as the moves that led to its boards, and the boards of the depth before that they were
+        // applied to, so that steps can be traced back. Its boards are released as soon as they have been expanded.
+        final List<Level> levels = new ArrayList<>();
+        Level level = new Level(null, new int[] { -1 }, new int[] { -1 }, 1);
+        List<Coordinate> steps = board.isSolved() ? new LinkedList<>() : null;
+        int boardCount = 1;
+        boolean truncated = false;
+
+        while (steps == null && level.size > 0 && !deadline.isExpired()) {
+            levels.add(level);
+
+            final Expansion expansion = expand(board, level, searchBoard.getEncodedLength(), configuration, pruningPipeline, deadline);
+            level.boards = null;
+
+            if (expansion.solvedParent >= 0) {
+                steps = getSteps(searchBoard, levels, expansion.solvedParent, expansion.solvedMove);
+            } else {
+                level = expansion.select(width);
+                boardCount += level.size;
+                truncated |= expansion.truncated;
+            }
+        }
+
+        logger.debug("Searched {} boards across {} depths", boardCount, levels.size());
+        logger.debug("Pruning usage: {}", pruningPipeline);
+
+        final Solution solution = new Solution(configuration, steps);
+
+        if (steps != null) {
+            logger.debug("Found solution:{}{}", System.lineSeparator(), solution);
+        } else if (deadline.isExpired()) {
+            logger.warn("No solution found within time limit: {}ms", configuration.getTimeLimit());
+        } else if (truncated) {
+            throw new SolutionException(String.format("No solution found within beam width: %d", width));
+        } else {
+            logger.warn("No solution found");
+        }
+
+        logger.trace("solve:exit({})", solution);
+        return solution;
+    }
+
+    private Expansion expand(final Board board, final Level level, final int encodedLength, final Configuration configuration, final PruningPipeline pruningPipeline, final Deadline deadline) throws SolutionException {
+        final List<Callable<Expansion>> tasks = new ArrayList<>();
+        for (int start = 0; start < level.size; start += SLICE_SIZE) {
+            final int sliceStart = start;
+            final int sliceEnd = Math.min(start + SLICE_SIZE, level.size);
+
+            tasks.add(() -> {
+                final SearchBoard searchBoard = new SearchBoard(board);
+                final Expansion expansion = new Expansion(encodedLength);
+                final int[] moves = new int[searchBoard.getMaxMoveCount()];
+                final BeamScoring scoring = configuration.getBeamScoring();
+
+                for (int parent = sliceStart; parent < sliceEnd && expansion.solvedParent < 0 && !deadline.isExpired(); parent++) {
+                    // The only board that is not encoded is the one being solved, which may not yet be settled
+                    if (level.boards != null) {
+                        searchBoard.decode(level.boards, parent * encodedLength);
+                    }
+
+                    final int count = searchBoard.getMoves(moves, 0);
+
+                    for (int i = 0; i < count && expansion.solvedParent < 0; i++) {
+                        searchBoard.apply(moves[i]);
+
+                        if (searchBoard.isSolved()) {
+                            expansion.solvedParent = parent;
+                            expansion.solvedMove = moves[i];
+                        } else if (!pruningPipeline.isUnsolvable(searchBoard)) {
+                            expansion.add(searchBoard, parent, moves[i], scoring.score(searchBoard));
+                        }
+
+                        searchBoard.undo();
+                    }
+                }
+
+                return expansion;
+            });
+        }
+
+        final Expansion expansion = new Expansion(encodedLength);
+
+        try {
+            // Slices are merged in order so that the same boards are always selected, however the work was scheduled
+            for (final Future<Expansion> future : ForkJoinPool.commonPool().invokeAll(tasks)) {
+                expansion.merge(future.get());
+            }
+        } catch (ExecutionException | InterruptedException e) {
+            throw new SolutionException("Solution failed", e);
+        }
+
+        return expansion;
+    }
+
+    private List<Coordinate> getSteps(final SearchBoard searchBoard, final List<Level> levels, final int solvedParent, final int solvedMove) {
+        final LinkedList<Coordinate> steps = new LinkedList<>();
+        steps.addFirst(searchBoard.getCoordinate(solvedMove));
+
+        int index = solvedParent;
+        for (int depth = levels.size() - 1; depth > 0; depth--) {
+            final Level level = levels.get(depth);
+
+            steps.addFirst(searchBoard.getCoordinate(level.moves[index]));
+            index = level.parents[index];
+        }
+
+        return steps;
+    }
+
+    // Boards reached by applying moves to the boards of a depth that were not found to be unsolvable
+    private static final class Expansion {
+
+        private byte[] boards;
+        private int count;
+        private final int encodedLength;
+        private long[] keys = new long[SLICE_SIZE];
+        private int[] moves = new int[SLICE_SIZE];
+        private int[] parents = new int[SLICE_SIZE];
+        private int[] scores = new int[SLICE_SIZE];
+        private int solvedMove = -1;
+        private int solvedParent = -1;
+        private boolean truncated;
+
+        Expansion(final int encodedLength) {
+            this.encodedLength = encodedLength;
+            this.boards = new byte[SLICE_SIZE * encodedLength];
+        }
+
+        void add(final SearchBoard searchBoard, final int parent, final int move, final int score) {
+            ensureCapacity(count + 1);
+
+            searchBoard.encode(boards, count * encodedLength);
+            keys[count] = searchBoard.getKey();
+            moves[count] = move;
+            parents[count] = parent;
+            scores[count] = score;
+            count++;
+        }
+
+        void merge(final Expansion other) {
+            if (solvedParent < 0 && other.solvedParent >= 0) {
+                solvedParent = other.solvedParent;
+                solvedMove = other.solvedMove;
+            }
+
+            ensureCapacity(count + other.count);
+
+            System.arraycopy(other.boards, 0, boards, count * encodedLength, other.count * encodedLength);
+            System.arraycopy(other.keys, 0, keys, count, other.count);
+            System.arraycopy(other.moves, 0, moves, count, other.count);
+            System.arraycopy(other.parents, 0, parents, count, other.count);
+            System.arraycopy(other.scores, 0, scores, count, other.count);
+            count += other.count;
+        }
+
+        // Selects the boards with the lowest scores, up to the given width, ignoring any that were reached more than
+        // once. Whether any other board had to be left out is recorded as the expansion being truncated.
+        Level select(final int width) {
+            // Scores are never negative so sorting them above the index of each board also breaks ties by that index
+            final long[] order = new long[count];
+            for (int i = 0; i < count; i++) {
+                order[i] = ((long) scores[i] << 32) | i;
+            }
+
+            Arrays.sort(order);
+
+            final int capacity = Math.min(width, count);
+            final Level level = new Level(new byte[capacity * encodedLength], new int[capacity], new int[capacity], 0);
+            final KeySet selected = new KeySet();
+
+            for (int i = 0; i < count && !truncated; i++) {
+                final int index = (int) order[i];
+
+                if (level.size == width) {
+                    // Boards that were reached more than once are only left out if none of them were selected
+                    truncated = !selected.contains(keys[index]);
+                } else if (selected.add(keys[index])) {
+                    System.arraycopy(boards, index * encodedLength, level.boards, level.size * encodedLength, encodedLength);
+                    level.moves[level.size] = moves[index];
+                    level.parents[level.size] = parents[index];
+                    level.size++;
+                }
+            }
+
+            return level;
+        }
+
+        private void ensureCapacity(final int capacity) {
+            if (capacity > moves.length) {
+                final int newCapacity = Math.max(capacity, moves.length * 2);
+
+                boards = Arrays.copyOf(boards, newCapacity * encodedLength);
+                keys = Arrays.copyOf(keys, newCapacity);
+                moves = Arrays.copyOf(moves, newCapacity);
+                parents = Arrays.copyOf(parents, newCapacity);
+                scores = Arrays.copyOf(scores, newCapacity);
+            }
+        }
+    }
+
+    // The boards kept at a single depth, each encoded at a fixed width, along with how they were reached
+    private static final class Level {
+
+        private byte[] boards;
+        private final int[] moves;
+        private final int[] parents;
+        private int size;
+
+        Level(final byte[] boards, final int[] moves, final int[] parents, final int size) {
+            this.boards = boards;
+            this.moves = moves;
+            this.parents = parents;
+            this.size = size;
+        }
+    }
+}
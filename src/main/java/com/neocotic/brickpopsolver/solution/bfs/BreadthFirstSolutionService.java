@@ -0,0 +1,318 @@
+/*
+ * Copyright (C) 2018 Alasdair Mercer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.neocotic.brickpopsolver.solution.bfs;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.neocotic.brickpopsolver.Board;
+import com.neocotic.brickpopsolver.Configuration;
+import com.neocotic.brickpopsolver.Coordinate;
+import com.neocotic.brickpopsolver.SearchBoard;
+import com.neocotic.brickpopsolver.service.AbstractService;
+import com.neocotic.brickpopsolver.solution.ConcurrentKeySet;
+import com.neocotic.brickpopsolver.solution.Deadline;
+import com.neocotic.brickpopsolver.solution.PruningPipeline;
+import com.neocotic.brickpopsolver.solution.Solution;
+import com.neocotic.brickpopsolver.solution.SolutionException;
+import com.neocotic.brickpopsolver.solution.SolutionService;
+
+// Finds a solution with the fewest possible steps by searching breadth-first, one depth at a time, with the boards of
+// each depth expanded in parallel. Boards reached more than once within the next depth, through moves applied in a
+// different order, are only kept once so each is only expanded once. The search gives up once it has generated more
+// boards than the node limit allows, as every board of a depth is held in memory.
+//
+// Once a spill threshold is set, boards are instead expanded in chunks and the boards of the next depth are written to
+// sorted run files in the spill directory whenever more would be held in memory than the threshold allows, as in
+// external-memory breadth-first search. The runs are merged at the end of each depth, which is also where boards
+// reached more than once are dropped, and the merged file is read back a chunk at a time to expand the next depth. Only
+// the moves and parents of each depth stay in memory, so the node limit does not apply to such searches. Those still
+// take eight bytes for every board generated, however, so the heap used grows with the number of boards searched and is
+// only bounded by the time limit.
+public final class BreadthFirstSolutionService extends AbstractService implements SolutionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BreadthFirstSolutionService.class);
+
+    public static final String SERVICE_NAME = "bfs";
+
+    // Boards within each depth are expanded in parallel in slices of this many
+    private static final int SLICE_SIZE = 64;
+    private static final long SPILL_THRESHOLD_UNIT = 1024 * 1024;
+
+    @Override
+    public String getServiceName() {
+        return SERVICE_NAME;
+    }
+
+    @Override
+    public Solution solve(final Board board, final Configuration configuration) throws SolutionException {
+        logger.trace("solve:enter(board={}, configuration={})", board, configuration);
+
+        logger.debug("Attempting to solve board:{}{}", System.lineSeparator(), board);
+
+        final Deadline deadline = new Deadline(configuration);
+        final int nodeLimit = configuration.getNodeLimit();
+        final PruningPipeline pruningPipeline = new PruningPipeline(configuration);
+        final SearchBoard searchBoard = new SearchBoard(board);
+        final int encodedLength = searchBoard.getEncodedLength();
+        // Each board held in memory also needs its key, parent, and move
+        final long runSize = configuration.getSpillThreshold() * SPILL_THRESHOLD_UNIT / (encodedLength + Long.BYTES + Integer.BYTES * 2);
+        final boolean spilling = runSize > 0;
+        final List<Frontier> frontiers = new ArrayList<>();
+        final List<Integer> frontierSizes = new ArrayList<>();
+        // The board being solved is never encoded as it may not yet be settled
+        Frontier frontier = new Frontier(encodedLength);
+        frontier.add(searchBoard, -1, -1);
+        frontier.release();
+        List<Coordinate> steps = board.isSolved() ? new LinkedList<>() : null;
+        long nodeCount = 1;
+        boolean limited = false;
+
+        try {
+            while (steps == null && frontier.size() > 0 && !limited && !deadline.isExpired()) {
+                frontiers.add(frontier);
+                frontierSizes.add(frontier.size());
+
+                logger.debug("Expanding {} boards at depth {}", frontier.size(), frontiers.size() - 1);
+
+                final Expansion expansion;
+                if (spilling) {
+                    // Chunks are small enough that all of the boards reached from one fit within a single run
+                    final int chunkSize = (int) Math.max(SLICE_SIZE, runSize / searchBoard.getMaxMoveCount());
+
+                    expansion = expand(board, frontier, chunkSize, (int) Math.min(runSize, Integer.MAX_VALUE), configuration.getSpillDirectory(), pruningPipeline, deadline);
+                } else {
+                    // No more boards can be generated than every move of every board in the frontier, or than the node
+                    // limit still allows, so the set is never larger than it needs to be
+                    final long budget = Math.max(Math.min((long) frontier.size() * searchBoard.getMaxMoveCount(), nodeLimit - nodeCount), 0);
+
+                    expansion = expand(board, frontier, 0, frontier.size(), 0, new ConcurrentKeySet((int) budget), new AtomicLong(budget), pruningPipeline, deadline);
+                }
+
+                if (expansion.solvedParent >= 0) {
+                    steps = getSteps(searchBoard, frontiers, expansion.solvedParent, expansion.solvedMove);
+                } else {
+                    limited = expansion.limited;
+                    frontier = expansion.children;
+                    nodeCount += frontier.size();
+
+                    // Only the moves and parents of earlier depths are needed from here on
+                    release(frontiers.get(frontiers.size() - 1));
+                }
+            }
+        } finally {
+            frontiers.forEach(this::release);
+            release(frontier);
+        }
+
+        logger.debug("Frontier sizes by depth: {}", frontierSizes);
+        logger.debug("Generated {} boards across {} depths", nodeCount, frontiers.size());
+        logger.debug("Pruning usage: {}", pruningPipeline);
+
+        final Solution solution = new Solution(configuration, steps);
+
+        if (steps != null) {
+            logger.debug("Found solution:{}{}", System.lineSeparator(), solution);
+        } else if (deadline.isExpired()) {
+            logger.warn("No solution found within time limit: {}ms", configuration.getTimeLimit());
+        } else if (limited) {
+            logger.warn("No solution found within node limit: {}", nodeLimit);
+        } else {
+            logger.warn("No solution found");
+        }
+
+        logger.trace("solve:exit({})", solution);
+        return solution;
+    }
+
+    // Expands the frontier a chunk at a time, whether it is held in memory or read back from its file, spilling the
+    // boards reached to disk whenever a run's worth of them are held in memory
+    private Expansion expand(final Board board, final Frontier frontier, final int chunkSize, final int runSize, final Path directory, final PruningPipeline pruningPipeline, final Deadline deadline) throws SolutionException {
+        final int encodedLength = new SearchBoard(board).getEncodedLength();
+
+        try (FrontierBuilder builder = new FrontierBuilder(encodedLength, runSize, directory)) {
+            if (frontier.getFile() == null) {
+                for (int start = 0; start < frontier.size(); start += chunkSize) {
+                    final Expansion expansion = expand(board, frontier, start, Math.min(start + chunkSize, frontier.size()), 0, null, null, pruningPipeline, deadline);
+                    if (expansion.solvedParent >= 0 || deadline.isExpired()) {
+                        return expansion;
+                    }
+
+                    builder.addAll(expansion.children);
+                }
+            } else {
+                try (FrontierFile.Reader reader = new FrontierFile.Reader(frontier.getFile(), encodedLength)) {
+                    int start = 0;
+
+                    while (reader.hasNext()) {
+                        final Frontier chunk = new Frontier(encodedLength);
+                        while (chunk.size() < chunkSize && reader.hasNext()) {
+                            reader.read(chunk);
+                        }
+
+                        // Boards reached from the chunk refer to their parents by their index within the whole frontier
+                        final Expansion expansion = expand(board, chunk, 0, chunk.size(), start, null, null, pruningPipeline, deadline);
+                        if (expansion.solvedParent >= 0 || deadline.isExpired()) {
+                            return expansion;
+                        }
+
+                        builder.addAll(expansion.children);
+                        start += chunk.size();
+                    }
+                }
+            }
+
+            final int runCount = builder.getRunCount();
+            final Expansion expansion = new Expansion(builder.build());
+
+            if (runCount > 0) {
+                logger.debug("Merged {} runs into {} boards", runCount, expansion.children.size());
+            }
+
+            return expansion;
+        } catch (IOException e) {
+            throw new SolutionException("Failed to spill frontier", e);
+        }
+    }
+
+    // Expands the boards of the frontier within the range in parallel slices. Boards reached more than once are only
+    // kept once when a set is given to track them, in which case no more are generated than remain.
+    private Expansion expand(final Board board, final Frontier frontier, final int start, final int end, final int parentOffset, final ConcurrentKeySet seen, final AtomicLong remaining, final PruningPipeline pruningPipeline, final Deadline deadline) throws SolutionException {
+        final AtomicBoolean stopped = new AtomicBoolean();
+        final int encodedLength = frontier.getEncodedLength();
+        final List<Callable<Expansion>> tasks = new ArrayList<>();
+
+        for (int offset = start; offset < end; offset += SLICE_SIZE) {
+            final int sliceStart = offset;
+            final int sliceEnd = Math.min(offset + SLICE_SIZE, end);
+
+            tasks.add(() -> {
+                final SearchBoard searchBoard = new SearchBoard(board);
+                final Expansion expansion = new Expansion(new Frontier(encodedLength));
+                final int[] moves = new int[searchBoard.getMaxMoveCount()];
+
+                for (int parent = sliceStart; parent < sliceEnd && !stopped.get() && !deadline.isExpired(); parent++) {
+                    if (frontier.getParent(parent) >= 0) {
+                        frontier.decode(parent, searchBoard);
+                    }
+
+                    final int count = searchBoard.getMoves(moves, 0);
+
+                    for (int i = 0; i < count && !stopped.get(); i++) {
+                        searchBoard.apply(moves[i]);
+
+                        if (searchBoard.isSolved()) {
+                            // Any solution at this depth is as short as any other so every slice can stop
+                            expansion.solvedParent = parentOffset + parent;
+                            expansion.solvedMove = moves[i];
+                            stopped.set(true);
+                        } else if (!pruningPipeline.isUnsolvable(searchBoard)) {
+                            if (seen == null) {
+                                expansion.children.add(searchBoard, parentOffset + parent, moves[i]);
+                            } else if (remaining.getAndDecrement() <= 0) {
+                                // Room is reserved before adding so that the set can never be filled beyond its size
+                                expansion.limited = true;
+                                stopped.set(true);
+                            } else if (seen.add(searchBoard.getKey())) {
+                                expansion.children.add(searchBoard, parentOffset + parent, moves[i]);
+                            }
+                        }
+
+                        searchBoard.undo();
+                    }
+                }
+
+                return expansion;
+            });
+        }
+
+        final Expansion expansion = new Expansion(new Frontier(encodedLength));
+
+        try {
+            for (final Future<Expansion> future : ForkJoinPool.commonPool().invokeAll(tasks)) {
+                expansion.merge(future.get());
+            }
+        } catch (ExecutionException | InterruptedException e) {
+            throw new SolutionException("Solution failed", e);
+        }
+
+        return expansion;
+    }
+
+    private List<Coordinate> getSteps(final SearchBoard searchBoard, final List<Frontier> frontiers, final int solvedParent, final int solvedMove) {
+        final LinkedList<Coordinate> steps = new LinkedList<>();
+        steps.addFirst(searchBoard.getCoordinate(solvedMove));
+
+        int index = solvedParent;
+        for (int depth = frontiers.size() - 1; depth > 0; depth--) {
+            final Frontier frontier = frontiers.get(depth);
+
+            steps.addFirst(searchBoard.getCoordinate(frontier.getMove(index)));
+            index = frontier.getParent(index);
+        }
+
+        return steps;
+    }
+
+    // Deletes the file of a frontier that was spilled to disk as well as releasing its boards
+    private void release(final Frontier frontier) {
+        frontier.release();
+
+        if (frontier.getFile() != null) {
+            FrontierFile.delete(frontier.getFile());
+        }
+    }
+
+    // Boards reached from a slice of a frontier, along with a solution if one was reached instead
+    private static final class Expansion {
+
+        private final Frontier children;
+        private boolean limited;
+        private int solvedMove = -1;
+        private int solvedParent = -1;
+
+        Expansion(final Frontier children) {
+            this.children = children;
+        }
+
+        void merge(final Expansion other) {
+            if (solvedParent < 0 && other.solvedParent >= 0) {
+                solvedParent = other.solvedParent;
+                solvedMove = other.solvedMove;
+            }
+
+            limited |= other.limited;
+            children.addAll(other.children);
+        }
+    }
+}
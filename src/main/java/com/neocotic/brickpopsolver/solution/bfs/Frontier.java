@@ -0,0 +1,182 @@
+/*
+ * Copyright (C) 2018 Alasdair Mercer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.neocotic.brickpopsolver.solution.bfs;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import com.neocotic.brickpopsolver.SearchBoard;
+
+// The boards at a single depth, each encoded at a fixed width, along with the move and board of the depth before that
+// they were reached from. Boards are released once the next depth has been expanded, as only the moves and parents are
+// needed to trace steps back. A frontier that was spilled to disk holds only its moves and parents, with its boards
+// read back from its file.
+final class Frontier {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private byte[] boards;
+    private final int encodedLength;
+    private final Path file;
+    private long[] keys;
+    private int[] moves;
+    private int[] parents;
+    private int size;
+
+    Frontier(final int encodedLength) {
+        this(encodedLength, null);
+    }
+
+    Frontier(final Path file) {
+        this(0, file);
+    }
+
+    private Frontier(final int encodedLength, final Path file) {
+        this.encodedLength = encodedLength;
+        this.file = file;
+        this.boards = new byte[INITIAL_CAPACITY * encodedLength];
+        this.keys = new long[INITIAL_CAPACITY];
+        this.moves = new int[INITIAL_CAPACITY];
+        this.parents = new int[INITIAL_CAPACITY];
+    }
+
+    void add(final SearchBoard board, final int parent, final int move) {
+        ensureCapacity(size + 1);
+
+        board.encode(boards, size * encodedLength);
+        keys[size] = board.getKey();
+        moves[size] = move;
+        parents[size] = parent;
+        size++;
+    }
+
+    // Reads the encoded board from the source, which is expected to be positioned at its start
+    void add(final long key, final int parent, final int move, final ByteBuffer source) {
+        ensureCapacity(size + 1);
+
+        source.get(boards, size * encodedLength, encodedLength);
+        keys[size] = key;
+        moves[size] = move;
+        parents[size] = parent;
+        size++;
+    }
+
+    void addAll(final Frontier other) {
+        ensureCapacity(size + other.size);
+
+        System.arraycopy(other.boards, 0, boards, size * encodedLength, other.size * encodedLength);
+        System.arraycopy(other.keys, 0, keys, size, other.size);
+        System.arraycopy(other.moves, 0, moves, size, other.size);
+        System.arraycopy(other.parents, 0, parents, size, other.size);
+        size += other.size;
+    }
+
+    void decode(final int index, final SearchBoard board) {
+        board.decode(boards, index * encodedLength);
+    }
+
+    int getEncodedLength() {
+        return encodedLength;
+    }
+
+    // Returns the file that holds the boards of this frontier, or null if they are held in memory
+    Path getFile() {
+        return file;
+    }
+
+    long getKey(final int index) {
+        return keys[index];
+    }
+
+    int getMove(final int index) {
+        return moves[index];
+    }
+
+    int getParent(final int index) {
+        return parents[index];
+    }
+
+    // Releases everything but the moves and parents, which are trimmed to the size of the frontier
+    void release() {
+        boards = null;
+        keys = null;
+        moves = Arrays.copyOf(moves, size);
+        parents = Arrays.copyOf(parents, size);
+    }
+
+    int size() {
+        return size;
+    }
+
+    // Returns the boards in ascending order of their keys, keeping only the first of any boards that share a key. Keys
+    // are sorted on their own and every board is then placed at the first position of its key, which avoids boxing an
+    // index for each board just to sort them by key.
+    Frontier sortUnique() {
+        final long[] sortedKeys = Arrays.copyOf(keys, size);
+        Arrays.sort(sortedKeys);
+
+        final int[] indices = new int[size];
+        Arrays.fill(indices, -1);
+
+        for (int i = 0; i < size; i++) {
+            int position = Arrays.binarySearch(sortedKeys, keys[i]);
+            while (position > 0 && sortedKeys[position - 1] == keys[i]) {
+                position--;
+            }
+
+            if (indices[position] < 0) {
+                indices[position] = i;
+            }
+        }
+
+        final Frontier sorted = new Frontier(encodedLength);
+        sorted.ensureCapacity(size);
+
+        for (final int index : indices) {
+            if (index >= 0) {
+                System.arraycopy(boards, index * encodedLength, sorted.boards, sorted.size * encodedLength, encodedLength);
+                sorted.keys[sorted.size] = keys[index];
+                sorted.moves[sorted.size] = moves[index];
+                sorted.parents[sorted.size] = parents[index];
+                sorted.size++;
+            }
+        }
+
+        return sorted;
+    }
+
+    void write(final int index, final ByteBuffer target) {
+        target.put(boards, index * encodedLength, encodedLength);
+    }
+
+    private void ensureCapacity(final int capacity) {
+        if (capacity > moves.length) {
+            final int newCapacity = Math.max(capacity, moves.length * 2);
+
+            boards = Arrays.copyOf(boards, newCapacity * encodedLength);
+            keys = Arrays.copyOf(keys, newCapacity);
+            moves = Arrays.copyOf(moves, newCapacity);
+            parents = Arrays.copyOf(parents, newCapacity);
+        }
+    }
+}
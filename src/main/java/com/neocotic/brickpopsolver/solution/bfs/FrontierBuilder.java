@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2018 Alasdair Mercer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.neocotic.brickpopsolver.solution.bfs;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+// Collects the boards of the next depth, writing them to a sorted run file whenever more are held in memory than the
+// run size allows. Duplicates are dropped from each run as it is sorted and from across runs as they are merged, so the
+// boards of a depth are only ever expanded once, however many runs they were spread over.
+final class FrontierBuilder implements Closeable {
+
+    private Frontier buffer;
+    private final Path directory;
+    private final int encodedLength;
+    private final int runSize;
+    private final List<Path> runs = new ArrayList<>();
+
+    FrontierBuilder(final int encodedLength, final int runSize, final Path directory) {
+        this.buffer = new Frontier(encodedLength);
+        this.directory = directory;
+        this.encodedLength = encodedLength;
+        this.runSize = runSize;
+    }
+
+    void addAll(final Frontier children) throws IOException {
+        buffer.addAll(children);
+
+        if (buffer.size() >= runSize) {
+            spill();
+        }
+    }
+
+    // Returns the boards that were added, held in memory if they never needed to be spilled or otherwise merged into a
+    // single file within the directory
+    Frontier build() throws IOException {
+        if (runs.isEmpty()) {
+            final Frontier frontier = buffer.sortUnique();
+            buffer = new Frontier(encodedLength);
+
+            return frontier;
+        }
+
+        if (buffer.size() > 0) {
+            spill();
+        }
+
+        final Path target = FrontierFile.createTempFile(directory);
+        try {
+            return FrontierFile.merge(runs, target, encodedLength);
+        } catch (IOException e) {
+            FrontierFile.delete(target);
+
+            throw e;
+        } finally {
+            close();
+        }
+    }
+
+    // Deletes any runs that have been written
+    @Override
+    public void close() {
+        runs.forEach(FrontierFile::delete);
+        runs.clear();
+    }
+
+    int getRunCount() {
+        return runs.size();
+    }
+
+    private void spill() throws IOException {
+        final Path run = FrontierFile.createTempFile(directory);
+        runs.add(run);
+
+        FrontierFile.write(buffer.sortUnique(), run);
+        buffer = new Frontier(encodedLength);
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright (C) 2018 Alasdair Mercer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.neocotic.brickpopsolver.solution.bfs;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// Reads and writes frontiers as files of fixed width records, each holding the key, parent, and move of a board
+// followed by its encoding. Runs are written in ascending order of key so that any number of them can be merged into a
+// single file in one pass, with boards that share a key only being kept once.
+final class FrontierFile {
+
+    private static final Logger logger = LoggerFactory.getLogger(FrontierFile.class);
+
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final int HEADER_LENGTH = Long.BYTES + Integer.BYTES * 2;
+
+    static Path createTempFile(final Path directory) throws IOException {
+        return Files.createTempFile(directory, "brickpopsolver-", ".frontier");
+    }
+
+    // Deletes the file without failing, as a file that is left behind only wastes space in the scratch directory
+    static void delete(final Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.warn("Failed to delete frontier file: {}", file, e);
+        }
+    }
+
+    // Merges the sorted runs into the target and returns a frontier holding only the moves and parents of the boards
+    // that were kept, in the same order as they were written
+    static Frontier merge(final List<Path> runs, final Path target, final int encodedLength) throws IOException {
+        final Frontier merged = new Frontier(target);
+        final List<Reader> readers = new ArrayList<>(runs.size());
+        final PriorityQueue<Reader> queue = new PriorityQueue<>(Math.max(runs.size(), 1), Comparator.comparingLong(Reader::getKey));
+
+        try (FileChannel channel = FileChannel.open(target, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (final Path run : runs) {
+                final Reader reader = new Reader(run, encodedLength);
+                readers.add(reader);
+
+                if (reader.hasNext()) {
+                    queue.add(reader);
+                }
+            }
+
+            final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            final ByteBuffer empty = ByteBuffer.allocate(0);
+            boolean first = true;
+            long lastKey = 0;
+
+            while (!queue.isEmpty()) {
+                final Reader reader = queue.poll();
+                final long key = reader.getKey();
+
+                if (first || key != lastKey) {
+                    if (buffer.remaining() < HEADER_LENGTH + encodedLength) {
+                        flush(channel, buffer);
+                    }
+
+                    merged.add(key, reader.getParent(), reader.getMove(), empty);
+                    reader.transferTo(buffer);
+                    first = false;
+                    lastKey = key;
+                } else {
+                    reader.skip();
+                }
+
+                if (reader.hasNext()) {
+                    queue.add(reader);
+                }
+            }
+
+            flush(channel, buffer);
+        } finally {
+            for (final Reader reader : readers) {
+                reader.close();
+            }
+        }
+
+        return merged;
+    }
+
+    static void write(final Frontier frontier, final Path target) throws IOException {
+        final int encodedLength = frontier.getEncodedLength();
+
+        try (FileChannel channel = FileChannel.open(target, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+            for (int i = 0; i < frontier.size(); i++) {
+                if (buffer.remaining() < HEADER_LENGTH + encodedLength) {
+                    flush(channel, buffer);
+                }
+
+                buffer.putLong(frontier.getKey(i));
+                buffer.putInt(frontier.getParent(i));
+                buffer.putInt(frontier.getMove(i));
+                frontier.write(i, buffer);
+            }
+
+            flush(channel, buffer);
+        }
+    }
+
+    private static void flush(final FileChannel channel, final ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+
+        buffer.clear();
+    }
+
+    private FrontierFile() {
+    }
+
+    // Reads the records of a file in order, one at a time, through a buffer
+    static final class Reader implements Closeable {
+
+        private final ByteBuffer buffer;
+        private final FileChannel channel;
+        private final int recordLength;
+
+        Reader(final Path file, final int encodedLength) throws IOException {
+            this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            this.channel = FileChannel.open(file, StandardOpenOption.READ);
+            this.recordLength = HEADER_LENGTH + encodedLength;
+
+            buffer.flip();
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+
+        long getKey() {
+            return buffer.getLong(buffer.position());
+        }
+
+        int getMove() {
+            return buffer.getInt(buffer.position() + Long.BYTES + Integer.BYTES);
+        }
+
+        int getParent() {
+            return buffer.getInt(buffer.position() + Long.BYTES);
+        }
+
+        // Returns whether another record can be read, filling the buffer from the file when less than a whole record
+        // is left within it
+        boolean hasNext() throws IOException {
+            if (buffer.remaining() < recordLength) {
+                buffer.compact();
+                while (buffer.hasRemaining() && channel.read(buffer) > 0) {
+                    // Keep reading until the buffer is full or the file has been read
+                }
+
+                buffer.flip();
+            }
+
+            return buffer.remaining() >= recordLength;
+        }
+
+        void read(final Frontier frontier) {
+            final long key = buffer.getLong();
+            final int parent = buffer.getInt();
+            final int move = buffer.getInt();
+
+            frontier.add(key, parent, move, buffer);
+        }
+
+        void skip() {
+            buffer.position(buffer.position() + recordLength);
+        }
+
+        void transferTo(final ByteBuffer target) {
+            final int limit = buffer.limit();
+
+            buffer.limit(buffer.position() + recordLength);
+            target.put(buffer);
+            buffer.limit(limit);
+        }
+    }
+}
@@ -0,0 +1,258 @@
+/*
+ * Copyright (C) 2018 Alasdair Mercer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.neocotic.brickpopsolver.solution.forkjoin;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.neocotic.brickpopsolver.Board;
+import com.neocotic.brickpopsolver.Configuration;
+import com.neocotic.brickpopsolver.Coordinate;
+import com.neocotic.brickpopsolver.SearchBoard;
+import com.neocotic.brickpopsolver.service.AbstractService;
+import com.neocotic.brickpopsolver.solution.CancellationToken;
+import com.neocotic.brickpopsolver.solution.Deadline;
+import com.neocotic.brickpopsolver.solution.MoveOrdering;
+import com.neocotic.brickpopsolver.solution.MoveSorter;
+import com.neocotic.brickpopsolver.solution.PruningPipeline;
+import com.neocotic.brickpopsolver.solution.Solution;
+import com.neocotic.brickpopsolver.solution.SolutionException;
+import com.neocotic.brickpopsolver.solution.SolutionSearch;
+import com.neocotic.brickpopsolver.solution.SolutionService;
+import com.neocotic.brickpopsolver.solution.TranspositionTable;
+import com.neocotic.brickpopsolver.solution.tablebase.Tablebase;
+
+public final class ForkJoinSolutionService extends AbstractService implements SolutionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ForkJoinSolutionService.class);
+
+    public static final String SERVICE_NAME = "forkjoin";
+
+    // Boards with fewer bricks than this are always searched by the task that reached them as their subtrees are too
+    // small to be worth the overhead of forking
+    private static final int SPLIT_BRICK_THRESHOLD = 12;
+    // Tasks only fork while the number of tasks queued by their worker that have yet to be stolen is below this
+    private static final int SPLIT_SURPLUS_THRESHOLD = 2;
+
+    @Override
+    public String getServiceName() {
+        return SERVICE_NAME;
+    }
+
+    @Override
+    public Solution solve(final Board board, final Configuration configuration) throws SolutionException {
+        logger.trace("solve:enter(board={}, configuration={})", board, configuration);
+
+        logger.debug("Attempting to solve board:{}{}", System.lineSeparator(), board);
+
+        final Tablebase tablebase = SolutionSearch.getTablebase(configuration);
+        final AtomicReference<List<Coordinate>> result = new AtomicReference<>();
+        final CancellationToken cancellationToken = new CancellationToken(new Deadline(configuration));
+        final PruningPipeline pruningPipeline = new PruningPipeline(configuration);
+        final TranspositionTable transpositionTable = new TranspositionTable(configuration);
+
+        if (!board.isSolved()) {
+            ForkJoinPool.commonPool().invoke(new SearchTask(board, Collections.emptyList(), result, cancellationToken, transpositionTable, pruningPipeline, configuration.getMoveOrdering(), tablebase, configuration.getTablebaseThreshold()));
+        }
+
+        final Solution solution = new Solution(configuration, result.get());
+
+        if (solution.isEmpty()) {
+            if (cancellationToken.isCancelled()) {
+                logger.warn("No solution found within time limit: {}ms", configuration.getTimeLimit());
+            } else {
+                logger.warn("No solution found");
+            }
+        } else {
+            logger.debug("Found solution:{}{}", System.lineSeparator(), solution);
+        }
+
+        logger.debug("Transposition table usage: {}", transpositionTable);
+        logger.debug("Pruning usage: {}", pruningPipeline);
+
+        logger.trace("solve:exit({})", solution);
+        return solution;
+    }
+
+    private static final class SearchTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Board board;
+        private final CancellationToken cancellationToken;
+        private int lowestBrickCount;
+        private final MoveOrdering moveOrdering;
+        private int[] moves;
+        private MoveSorter moveSorter;
+        private int[] path;
+        private final List<Coordinate> prefix;
+        private final PruningPipeline pruningPipeline;
+        private final AtomicReference<List<Coordinate>> result;
+        private final Tablebase tablebase;
+        private final int tablebaseThreshold;
+        private final TranspositionTable transpositionTable;
+
+        SearchTask(final Board board, final List<Coordinate> prefix, final AtomicReference<List<Coordinate>> result, final CancellationToken cancellationToken, final TranspositionTable transpositionTable, final PruningPipeline pruningPipeline, final MoveOrdering moveOrdering, final Tablebase tablebase, final int tablebaseThreshold) {
+            this.board = board;
+            this.prefix = prefix;
+            this.result = result;
+            this.cancellationToken = cancellationToken;
+            this.transpositionTable = transpositionTable;
+            this.pruningPipeline = pruningPipeline;
+            this.moveOrdering = moveOrdering;
+            this.tablebase = tablebase;
+            this.tablebaseThreshold = tablebaseThreshold;
+        }
+
+        @Override
+        protected void compute() {
+            final SearchBoard searchBoard = new SearchBoard(board);
+            lowestBrickCount = searchBoard.getBrickCount();
+            moves = new int[searchBoard.getMaxMoveCount()];
+            moveSorter = moveOrdering.createSorter(searchBoard);
+            path = new int[searchBoard.getMaxMoveCount()];
+
+            search(searchBoard, 0);
+        }
+
+        // Returns whether the board was exhausted without finding a solution, as opposed to either finding one or
+        // stopping early because a solution was found elsewhere
+        private boolean search(final SearchBoard board, final int offset) {
+            lowestBrickCount = Math.min(lowestBrickCount, board.getBrickCount());
+
+            if (result.get() != null || cancellationToken.isCancelled()) {
+                return false;
+            }
+            if (board.isSolved()) {
+                publish(board);
+                return false;
+            }
+
+            // Boards with few enough bricks are answered exactly by the tablebase, which also fills in the rest of the
+            // path
+            if (tablebase != null && board.getBrickCount() <= tablebaseThreshold && tablebase.contains(board)) {
+                final int count = tablebase.solve(board, path, board.getDepth());
+                if (count < 0) {
+                    return true;
+                }
+
+                publish(board);
+
+                for (int i = 0; i < count; i++) {
+                    board.undo();
+                }
+
+                return false;
+            }
+
+            if (transpositionTable.isUnsolvable(board.getKey())) {
+                return true;
+            }
+            if (pruningPipeline.isUnsolvable(board)) {
+                return true;
+            }
+
+            if (offset + board.getMaxMoveCount() > moves.length) {
+                moves = Arrays.copyOf(moves, Math.max(moves.length * 2, offset + board.getMaxMoveCount()));
+            }
+
+            final int count = board.getMoves(moves, offset);
+            moveSorter.sort(board, moves, offset, count);
+            final boolean exhausted;
+
+            if (board.getBrickCount() >= SPLIT_BRICK_THRESHOLD && getSurplusQueuedTaskCount() < SPLIT_SURPLUS_THRESHOLD) {
+                exhausted = fork(board, offset, count);
+            } else {
+                exhausted = searchMoves(board, offset, count);
+            }
+
+            // Boards are only known to be unsolvable when every move was exhausted rather than abandoned
+            if (exhausted) {
+                transpositionTable.addUnsolvable(board.getKey(), board.getBrickCount());
+            }
+
+            return exhausted;
+        }
+
+        private boolean fork(final SearchBoard board, final int offset, final int count) {
+            final List<SearchTask> tasks = new ArrayList<>(count);
+            final List<Coordinate> steps = getSteps(board);
+
+            for (int i = offset; i < offset + count; i++) {
+                final List<Coordinate> childPrefix = new ArrayList<>(steps);
+                childPrefix.add(board.getCoordinate(moves[i]));
+
+                board.apply(moves[i]);
+                tasks.add(new SearchTask(board.toBoard(), childPrefix, result, cancellationToken, transpositionTable, pruningPipeline, moveOrdering, tablebase, tablebaseThreshold));
+                board.undo();
+            }
+
+            invokeAll(tasks);
+
+            return result.get() == null && !cancellationToken.isCancelled();
+        }
+
+        private List<Coordinate> getSteps(final SearchBoard board) {
+            final List<Coordinate> steps = new ArrayList<>(prefix);
+            for (int i = 0; i < board.getDepth(); i++) {
+                steps.add(board.getCoordinate(path[i]));
+            }
+
+            return steps;
+        }
+
+        private void publish(final SearchBoard board) {
+            result.compareAndSet(null, getSteps(board));
+        }
+
+        private boolean searchMoves(final SearchBoard board, final int offset, final int count) {
+            for (int i = offset; i < offset + count; i++) {
+                // The fewest bricks reached beneath each move are tracked separately before being merged back in
+                final int lowestBrickCount = this.lowestBrickCount;
+                this.lowestBrickCount = board.getBrickCount();
+
+                path[board.getDepth()] = moves[i];
+                board.apply(moves[i]);
+
+                final boolean exhausted = search(board, offset + count);
+
+                board.undo();
+
+                if (!exhausted) {
+                    return false;
+                }
+
+                moveSorter.exhausted(board, moves[i], this.lowestBrickCount);
+                this.lowestBrickCount = Math.min(lowestBrickCount, this.lowestBrickCount);
+            }
+
+            return true;
+        }
+    }
+}
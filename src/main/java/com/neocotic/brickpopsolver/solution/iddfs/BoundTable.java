@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2018 Alasdair Mercer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.neocotic.brickpopsolver.solution.iddfs;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+import com.neocotic.brickpopsolver.CustomToStringStyle;
+
+// Remembers lower bounds on the number of moves needed to solve boards, learned by exhausting them within a threshold.
+// Bounds hold regardless of the threshold or path by which a board was reached so they can be shared between every
+// iteration, including those running concurrently.
+final class BoundTable {
+
+    static final int UNSOLVABLE = 0xff;
+
+    private static final int BUCKET_SIZE = 4;
+    private static final int ENTRY_BYTES = Long.BYTES;
+    private static final int MAX_BOUND = UNSOLVABLE - 1;
+    private static final long SIGNATURE_MASK = ~0xffL;
+
+    // Each entry packs the key of a board, less its lowest bits, together with its bound held in those bits. A zero
+    // entry is empty.
+    private final AtomicLongArray entries;
+    private final int bucketMask;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder probes = new LongAdder();
+    private final LongAdder stores = new LongAdder();
+
+    BoundTable(final int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException(String.format("size must not be negative: %d", size));
+        }
+
+        final long bucketCount = ((long) size << 20) / (ENTRY_BYTES * BUCKET_SIZE);
+        if (bucketCount > 0) {
+            final int buckets = Integer.highestOneBit((int) Math.min(bucketCount, Integer.MAX_VALUE / BUCKET_SIZE));
+
+            entries = new AtomicLongArray(buckets * BUCKET_SIZE);
+            bucketMask = buckets - 1;
+        } else {
+            entries = null;
+            bucketMask = 0;
+        }
+    }
+
+    // Returns the lower bound recorded for the board, which is zero when none is known
+    int getBound(final long key) {
+        final long signature = key & SIGNATURE_MASK;
+        if (entries == null || signature == 0) {
+            return 0;
+        }
+
+        probes.increment();
+
+        final int start = getBucketStart(key);
+        for (int i = start; i < start + BUCKET_SIZE; i++) {
+            final long entry = entries.get(i);
+
+            if ((entry & SIGNATURE_MASK) == signature) {
+                hits.increment();
+                return (int) (entry & ~SIGNATURE_MASK);
+            }
+        }
+
+        return 0;
+    }
+
+    // Records a lower bound for the board, which may also be UNSOLVABLE, unless a higher one is already known
+    void putBound(final long key, final int bound) {
+        final long signature = key & SIGNATURE_MASK;
+        if (entries == null || signature == 0 || bound <= 0) {
+            return;
+        }
+
+        final long entry = signature | (bound == UNSOLVABLE ? UNSOLVABLE : Math.min(bound, MAX_BOUND));
+        final int start = getBucketStart(key);
+
+        for (int i = start; i < start + BUCKET_SIZE; i++) {
+            final long current = entries.get(i);
+
+            if ((current & SIGNATURE_MASK) == signature) {
+                if ((current & ~SIGNATURE_MASK) < (entry & ~SIGNATURE_MASK)) {
+                    entries.set(i, entry);
+                    stores.increment();
+                }
+
+                return;
+            }
+            if (current == 0 && entries.compareAndSet(i, 0, entry)) {
+                stores.increment();
+                return;
+            }
+        }
+
+        // Every recorded bound is valid so racing writers overwriting each other's entries can only ever lose knowledge
+        entries.set(start + (int) ((key >>> 8) & (BUCKET_SIZE - 1)), entry);
+        stores.increment();
+    }
+
+    private int getBucketStart(final long key) {
+        return ((int) (key >>> 32) & bucketMask) * BUCKET_SIZE;
+    }
+
+    @Override
+    public String toString() {
+        final long probeCount = probes.sum();
+
+        return new ToStringBuilder(this, CustomToStringStyle.SHORT_STYLE)
+            .append("capacity", entries != null ? entries.length() : 0)
+            .append("probes", probeCount)
+            .append("hits", hits.sum())
+            .append("hitRate", String.format("%.2f%%", probeCount > 0 ? (hits.sum() * 100.0) / probeCount : 0))
+            .append("stores", stores.sum())
+            .toString();
+    }
+}
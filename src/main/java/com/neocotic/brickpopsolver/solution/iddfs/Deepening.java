@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2018 Alasdair Mercer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.neocotic.brickpopsolver.solution.iddfs;
+
+import java.util.List;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+import com.neocotic.brickpopsolver.Configuration;
+import com.neocotic.brickpopsolver.Coordinate;
+import com.neocotic.brickpopsolver.CustomToStringStyle;
+import com.neocotic.brickpopsolver.solution.Deadline;
+import com.neocotic.brickpopsolver.solution.Solution;
+import com.neocotic.brickpopsolver.solution.SolutionListener;
+
+// Hands out the thresholds of deepening iterations, in ascending order, to any number of workers and collects their
+// results. Iterations are abandoned as soon as their outcome no longer matters: those below a threshold that is already
+// known to fail, those at or above the length of the shortest solution found so far, and every iteration once the
+// deadline has passed. Each solution found that is shorter than the last is passed on to the listener.
+final class Deepening {
+
+    private final Configuration configuration;
+    private final Deadline deadline;
+    private volatile int floor;
+    private final SolutionListener listener;
+    private final int maxThreshold;
+    private int nextThreshold;
+    private volatile List<Coordinate> steps;
+    private volatile int stepCount = Integer.MAX_VALUE;
+    private volatile boolean unsolvable;
+
+    Deepening(final int initialThreshold, final int maxThreshold, final Configuration configuration, final Deadline deadline, final SolutionListener listener) {
+        this.floor = initialThreshold;
+        this.nextThreshold = initialThreshold;
+        this.maxThreshold = maxThreshold;
+        this.configuration = configuration;
+        this.deadline = deadline;
+        this.listener = listener;
+    }
+
+    // Returns the threshold for the next iteration or -1 if there are no more iterations worth running
+    synchronized int nextThreshold() {
+        nextThreshold = Math.max(nextThreshold, floor);
+
+        if (isAbandoned(nextThreshold) || nextThreshold > maxThreshold) {
+            return -1;
+        }
+
+        return nextThreshold++;
+    }
+
+    // Records that an iteration was exhausted without a solution, along with the lowest estimate of any board that was
+    // beyond its threshold, below which every other iteration must also fail
+    synchronized void failed(final int lowestEstimate) {
+        if (lowestEstimate == Integer.MAX_VALUE) {
+            // Nothing was cut off by the threshold so there is no solution at any depth
+            unsolvable = true;
+        } else {
+            floor = Math.max(floor, lowestEstimate);
+        }
+    }
+
+    synchronized void found(final List<Coordinate> steps) {
+        if (steps.size() < stepCount) {
+            this.steps = steps;
+            stepCount = steps.size();
+
+            listener.found(new Solution(configuration, steps));
+        }
+    }
+
+    List<Coordinate> getSteps() {
+        return steps;
+    }
+
+    boolean isAbandoned(final int threshold) {
+        return unsolvable || threshold < floor || threshold >= stepCount || deadline.isExpired();
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this, CustomToStringStyle.SHORT_STYLE)
+            .append("floor", floor)
+            .append("stepCount", stepCount)
+            .append("unsolvable", unsolvable)
+            .toString();
+    }
+}
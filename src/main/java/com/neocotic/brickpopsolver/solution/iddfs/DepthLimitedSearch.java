@@ -0,0 +1,169 @@
+/*
+ * Copyright (C) 2018 Alasdair Mercer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.neocotic.brickpopsolver.solution.iddfs;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import com.neocotic.brickpopsolver.Board;
+import com.neocotic.brickpopsolver.Configuration;
+import com.neocotic.brickpopsolver.Coordinate;
+import com.neocotic.brickpopsolver.SearchBoard;
+import com.neocotic.brickpopsolver.solution.MoveSorter;
+import com.neocotic.brickpopsolver.solution.PruningPipeline;
+
+// Runs deepening iterations, taken from the shared deepening, until there are none left. Each iteration walks a single
+// board depth-first, just like SolutionSearch, but only down to boards that are estimated to be solvable within its
+// threshold, so memory only ever grows with the depth of the search.
+final class DepthLimitedSearch implements Callable<Void> {
+
+    private static final int FOUND = -1;
+
+    private final Board board;
+    private final BoundTable boundTable;
+    private boolean cancelled;
+    private final Configuration configuration;
+    private final Deepening deepening;
+    private int lowestBrickCount;
+    private int[] moves;
+    private MoveSorter moveSorter;
+    private int[] path;
+    private final PruningPipeline pruningPipeline;
+    private int threshold;
+
+    DepthLimitedSearch(final Configuration configuration, final Board board, final Deepening deepening, final BoundTable boundTable, final PruningPipeline pruningPipeline) {
+        this.configuration = configuration;
+        this.board = board;
+        this.deepening = deepening;
+        this.boundTable = boundTable;
+        this.pruningPipeline = pruningPipeline;
+    }
+
+    @Override
+    public Void call() {
+        final SearchBoard board = new SearchBoard(this.board);
+        moves = new int[board.getMaxMoveCount()];
+        moveSorter = configuration.getMoveOrdering().createSorter(board);
+        path = new int[board.getMaxMoveCount()];
+
+        while ((threshold = deepening.nextThreshold()) >= 0) {
+            cancelled = false;
+            lowestBrickCount = board.getBrickCount();
+
+            final int result = search(board, 0);
+
+            if (result == FOUND) {
+                final List<Coordinate> steps = new ArrayList<>();
+                for (int i = 0; i < board.getDepth(); i++) {
+                    steps.add(board.getCoordinate(path[i]));
+                }
+
+                deepening.found(steps);
+
+                while (board.getDepth() > 0) {
+                    board.undo();
+                }
+            } else if (!cancelled) {
+                deepening.failed(result);
+            }
+        }
+
+        return null;
+    }
+
+    // Returns FOUND if a solution was found within the threshold and otherwise the lowest estimate of any board that
+    // was beyond it, which is Integer.MAX_VALUE if there were none
+    private int search(final SearchBoard board, final int offset) {
+        lowestBrickCount = Math.min(lowestBrickCount, board.getBrickCount());
+
+        if (board.isSolved()) {
+            return FOUND;
+        }
+        if (isCancelled()) {
+            return Integer.MAX_VALUE;
+        }
+
+        final int depth = board.getDepth();
+        final long key = board.getKey();
+        final int bound = Math.max(board.getDistinctColorCount(), boundTable.getBound(key));
+
+        if (bound == BoundTable.UNSOLVABLE) {
+            return Integer.MAX_VALUE;
+        }
+        if (pruningPipeline.isUnsolvable(board)) {
+            boundTable.putBound(key, BoundTable.UNSOLVABLE);
+            return Integer.MAX_VALUE;
+        }
+        if (depth + bound > threshold) {
+            return depth + bound;
+        }
+
+        if (offset + board.getMaxMoveCount() > moves.length) {
+            moves = Arrays.copyOf(moves, Math.max(moves.length * 2, offset + board.getMaxMoveCount()));
+        }
+
+        final int count = board.getMoves(moves, offset);
+        moveSorter.sort(board, moves, offset, count);
+
+        int lowestEstimate = Integer.MAX_VALUE;
+
+        for (int i = offset; i < offset + count; i++) {
+            // The fewest bricks reached beneath each move are tracked separately before being merged back in
+            final int lowestBrickCount = this.lowestBrickCount;
+            this.lowestBrickCount = board.getBrickCount();
+
+            path[depth] = moves[i];
+            board.apply(moves[i]);
+
+            final int result = search(board, offset + count);
+            if (result == FOUND) {
+                return FOUND;
+            }
+
+            board.undo();
+
+            if (cancelled) {
+                return Integer.MAX_VALUE;
+            }
+
+            moveSorter.exhausted(board, moves[i], this.lowestBrickCount);
+            this.lowestBrickCount = Math.min(lowestBrickCount, this.lowestBrickCount);
+            lowestEstimate = Math.min(lowestEstimate, result);
+        }
+
+        // Every move has been exhausted so the board needs at least as many moves as the closest board beyond the
+        // threshold was estimated to need from here
+        boundTable.putBound(key, lowestEstimate == Integer.MAX_VALUE ? BoundTable.UNSOLVABLE : lowestEstimate - depth);
+
+        return lowestEstimate;
+    }
+
+    private boolean isCancelled() {
+        if (!cancelled && (deepening.isAbandoned(threshold) || Thread.currentThread().isInterrupted())) {
+            cancelled = true;
+        }
+
+        return cancelled;
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2018 Alasdair Mercer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.neocotic.brickpopsolver.solution.iddfs;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.neocotic.brickpopsolver.Board;
+import com.neocotic.brickpopsolver.Configuration;
+import com.neocotic.brickpopsolver.service.AbstractService;
+import com.neocotic.brickpopsolver.solution.Deadline;
+import com.neocotic.brickpopsolver.solution.PruningPipeline;
+import com.neocotic.brickpopsolver.solution.Solution;
+import com.neocotic.brickpopsolver.solution.SolutionException;
+import com.neocotic.brickpopsolver.solution.SolutionListener;
+import com.neocotic.brickpopsolver.solution.SolutionService;
+
+// Finds a solution with the fewest possible steps, like the A* service, but by deepening a depth-first search (i.e.
+// IDA*) so that memory only grows with the number of steps. Iterations with consecutive thresholds are run in parallel
+// across all available processors and share what they learn about boards through a table of lower bounds.
+public final class IterativeDeepeningSolutionService extends AbstractService implements SolutionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(IterativeDeepeningSolutionService.class);
+
+    public static final String SERVICE_NAME = "iddfs";
+
+    private ExecutorService executor;
+
+    @Override
+    public String getServiceName() {
+        return SERVICE_NAME;
+    }
+
+    // Shuts down the executor used to run iterations, if any, which will otherwise be reused by every solve. A new
+    // executor will be created should the service be used again afterwards.
+    @Override
+    public synchronized void shutdown() {
+        logger.trace("shutdown:enter()");
+
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+
+            logger.debug("Executor shut down");
+        }
+
+        logger.trace("shutdown:exit()");
+    }
+
+    @Override
+    public Solution solve(final Board board, final Configuration configuration) throws SolutionException {
+        return solve(board, configuration, solution -> {
+        });
+    }
+
+    @Override
+    public Solution solve(final Board board, final Configuration configuration, final SolutionListener listener) throws SolutionException {
+        logger.trace("solve:enter(board={}, configuration={}, listener={})", board, configuration, listener);
+
+        logger.debug("Attempting to solve board:{}{}", System.lineSeparator(), board);
+
+        final Deadline deadline = new Deadline(configuration);
+        final BoundTable boundTable = new BoundTable(configuration.getTranspositionTableSize());
+        // Every move pops at least two bricks and every color needs at least one move
+        final Deepening deepening = new Deepening(board.getDistinctColorCount(), board.getBrickCount() / 2, configuration, deadline, listener);
+        final PruningPipeline pruningPipeline = new PruningPipeline(configuration);
+
+        if (!board.isSolved()) {
+            final ExecutorService executor = getExecutor();
+            final List<Future<Void>> futures = new ArrayList<>();
+
+            try {
+                for (int i = 0; i < Runtime.getRuntime().availableProcessors(); i++) {
+                    futures.add(executor.submit(new DepthLimitedSearch(configuration, board, deepening, boundTable, pruningPipeline)));
+                }
+
+                for (final Future<Void> future : futures) {
+                    future.get();
+                }
+            } catch (ExecutionException | InterruptedException e) {
+                throw new SolutionException("Solution failed", e);
+            } finally {
+                for (final Future<Void> future : futures) {
+                    future.cancel(true);
+                }
+            }
+        }
+
+        logger.debug("Bound table usage: {}", boundTable);
+        logger.debug("Pruning usage: {}", pruningPipeline);
+
+        final Solution solution = new Solution(configuration, deepening.getSteps());
+
+        if (!solution.isEmpty()) {
+            logger.debug("Found solution:{}{}", System.lineSeparator(), solution);
+
+            if (deadline.isExpired()) {
+                logger.debug("Time limit reached before solution could be proven to have the fewest steps");
+            }
+        } else if (deadline.isExpired()) {
+            logger.warn("No solution found within time limit: {}ms", configuration.getTimeLimit());
+        } else {
+            logger.warn("No solution found");
+        }
+
+        logger.trace("solve:exit({})", solution);
+        return solution;
+    }
+
+    private synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            // Work stealing pools use daemon threads so an executor that is never shut down cannot keep the JVM alive
+            executor = Executors.newWorkStealingPool();
+
+            logger.debug("Executor created");
+        }
+
+        return executor;
+    }
+}
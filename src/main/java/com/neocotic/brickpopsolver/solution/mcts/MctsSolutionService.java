@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2018 Alasdair Mercer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.neocotic.brickpopsolver.solution.mcts;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.neocotic.brickpopsolver.Board;
+import com.neocotic.brickpopsolver.Configuration;
+import com.neocotic.brickpopsolver.Coordinate;
+import com.neocotic.brickpopsolver.service.AbstractService;
+import com.neocotic.brickpopsolver.solution.Deadline;
+import com.neocotic.brickpopsolver.solution.PruningPipeline;
+import com.neocotic.brickpopsolver.solution.Solution;
+import com.neocotic.brickpopsolver.solution.SolutionException;
+import com.neocotic.brickpopsolver.solution.SolutionListener;
+import com.neocotic.brickpopsolver.solution.SolutionService;
+
+// Searches by Monte Carlo tree search, playing out boards with random moves and growing a tree towards the moves whose
+// playouts popped the most bricks, keeping the shortest solution found until time runs out or one is found with as
+// few steps as there are colors. Every available processor works on the same tree, using virtual losses to spread out.
+// The time taken is therefore bounded even for boards where depth-first searches get stuck, but solutions are not
+// guaranteed to be found even when they exist, in which case an empty solution is returned so that the caller can fall
+// back on an exhaustive service.
+public final class MctsSolutionService extends AbstractService implements SolutionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MctsSolutionService.class);
+
+    public static final String SERVICE_NAME = "mcts";
+
+    private ExecutorService executor;
+
+    @Override
+    public String getServiceName() {
+        return SERVICE_NAME;
+    }
+
+    // Shuts down the executor used to run playouts, if any, which will otherwise be reused by every solve. A new
+    // executor will be created should the service be used again afterwards.
+    @Override
+    public synchronized void shutdown() {
+        logger.trace("shutdown:enter()");
+
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+
+            logger.debug("Executor shut down");
+        }
+
+        logger.trace("shutdown:exit()");
+    }
+
+    @Override
+    public Solution solve(final Board board, final Configuration configuration) throws SolutionException {
+        return solve(board, configuration, solution -> {
+        });
+    }
+
+    @Override
+    public Solution solve(final Board board, final Configuration configuration, final SolutionListener listener) throws SolutionException {
+        logger.trace("solve:enter(board={}, configuration={}, listener={})", board, configuration, listener);
+
+        logger.debug("Attempting to solve board:{}{}", System.lineSeparator(), board);
+
+        final Deadline deadline = new Deadline(configuration).within(configuration.getMctsTimeLimit());
+        final SearchTree tree = new SearchTree(configuration, deadline, board.getDistinctColorCount(), listener);
+        final PruningPipeline pruningPipeline = new PruningPipeline(configuration);
+        List<Coordinate> steps = null;
+
+        if (board.isSolved()) {
+            steps = new LinkedList<>();
+
+            listener.found(new Solution(configuration, steps));
+        } else {
+            final ExecutorService executor = getExecutor();
+            final List<Future<Void>> futures = new ArrayList<>();
+
+            try {
+                for (int i = 0; i < Runtime.getRuntime().availableProcessors(); i++) {
+                    futures.add(executor.submit(new Playouts(configuration, board, i, tree, pruningPipeline)));
+                }
+
+                for (final Future<Void> future : futures) {
+                    future.get();
+                }
+            } catch (ExecutionException | InterruptedException e) {
+                throw new SolutionException("Solution failed", e);
+            } finally {
+                for (final Future<Void> future : futures) {
+                    future.cancel(true);
+                }
+            }
+
+            steps = tree.getSteps();
+        }
+
+        logger.debug("Tree usage: {}", tree);
+        logger.debug("Pruning usage: {}", pruningPipeline);
+
+        final Solution solution = new Solution(configuration, steps);
+
+        if (steps != null) {
+            logger.debug("Found solution:{}{}", System.lineSeparator(), solution);
+        } else if (deadline.isExpired()) {
+            logger.warn("No solution found within time limit: {}ms", deadline.getTimeLimit());
+        } else {
+            logger.warn("No solution found");
+        }
+
+        logger.trace("solve:exit({})", solution);
+        return solution;
+    }
+
+    private synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            // Work stealing pools use daemon threads so an executor that is never shut down cannot keep the JVM alive
+            executor = Executors.newWorkStealingPool();
+
+            logger.debug("Executor created");
+        }
+
+        return executor;
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2018 Alasdair Mercer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.neocotic.brickpopsolver.solution.mcts;
+
+import java.util.Arrays;
+
+import com.neocotic.brickpopsolver.SearchBoard;
+
+// A board within the tree, reached by applying its move to the board of its parent. Nodes are shared by every worker so
+// they are only ever changed while holding their own lock, although their statistics may be read without it.
+final class Node {
+
+    // Rewards are the fraction of bricks popped so lie between 0 and 1
+    private static final double EXPLORATION = 0.5;
+
+    private Node[] children;
+    private int childCount;
+    private volatile boolean exhausted;
+    private final int move;
+    private int[] moves;
+    private final Node parent;
+    private volatile double totalReward;
+    private volatile int virtualLoss;
+    private volatile int visitCount;
+
+    Node(final Node parent, final int move) {
+        this.parent = parent;
+        this.move = move;
+    }
+
+    // Records the reward of a playout that passed through this node, releasing the virtual loss that was added when it
+    // was selected
+    synchronized void backup(final double reward) {
+        totalReward += reward;
+        visitCount++;
+
+        if (parent != null) {
+            virtualLoss--;
+        }
+    }
+
+    synchronized void exhaust() {
+        exhausted = true;
+    }
+
+    // Selects the child of this node on the given board that the next playout should pass through, creating a new child
+    // for a move that has not yet been tried whenever the tree is allowed to grow. A virtual loss is added to the child
+    // so that other workers are steered away from it until the playout is backed up. Returns null if the playout should
+    // instead start from this node, which is marked as exhausted when none of its children can lead to a solution.
+    synchronized Node select(final SearchBoard board, final SearchTree tree) {
+        if (moves == null) {
+            final int[] buffer = new int[board.getMaxMoveCount()];
+            moves = Arrays.copyOf(buffer, board.getMoves(buffer, 0));
+            children = new Node[moves.length];
+        }
+
+        Node selected = null;
+
+        if (childCount < moves.length && tree.allocate()) {
+            selected = new Node(this, moves[childCount]);
+            children[childCount++] = selected;
+        } else {
+            final double logVisitCount = Math.log(Math.max(visitCount, 1));
+            double bestValue = Double.NEGATIVE_INFINITY;
+            boolean open = childCount < moves.length;
+
+            for (int i = 0; i < childCount; i++) {
+                final Node child = children[i];
+                if (child.exhausted) {
+                    continue;
+                }
+
+                open = true;
+
+                // Playouts still in progress count as visits that have yet to earn any reward
+                final int count = child.visitCount + child.virtualLoss;
+                final double value = count > 0 ? (child.totalReward / count) + (EXPLORATION * Math.sqrt(logVisitCount / count)) : Double.POSITIVE_INFINITY;
+
+                if (value > bestValue) {
+                    bestValue = value;
+                    selected = child;
+                }
+            }
+
+            if (!open) {
+                exhausted = true;
+            }
+        }
+
+        if (selected != null) {
+            synchronized (selected) {
+                selected.virtualLoss++;
+            }
+        }
+
+        return selected;
+    }
+
+    int getMove() {
+        return move;
+    }
+
+    Node getParent() {
+        return parent;
+    }
+
+    int getVisitCount() {
+        return visitCount;
+    }
+
+    boolean isExhausted() {
+        return exhausted;
+    }
+}
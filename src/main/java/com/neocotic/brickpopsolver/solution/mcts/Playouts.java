@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2018 Alasdair Mercer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.neocotic.brickpopsolver.solution.mcts;
+
+import java.util.LinkedList;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+
+import com.neocotic.brickpopsolver.Board;
+import com.neocotic.brickpopsolver.Configuration;
+import com.neocotic.brickpopsolver.Coordinate;
+import com.neocotic.brickpopsolver.SearchBoard;
+import com.neocotic.brickpopsolver.solution.PruningPipeline;
+
+// Repeatedly selects a path through the tree, plays out the rest of the board with random moves, and backs up the
+// fraction of bricks that were popped, until the tree is finished with
+final class Playouts implements Callable<Void> {
+
+    private final Board board;
+    private final PruningPipeline pruningPipeline;
+    private final SplittableRandom random;
+    private final SearchTree tree;
+
+    Playouts(final Configuration configuration, final Board board, final int worker, final SearchTree tree, final PruningPipeline pruningPipeline) {
+        this.board = board;
+        this.tree = tree;
+        this.pruningPipeline = pruningPipeline;
+        // Each worker draws from its own sequence so that its playouts are derived from the seed, as with restarts
+        this.random = new SplittableRandom(configuration.getSeed() + worker);
+    }
+
+    @Override
+    public Void call() {
+        final SearchBoard searchBoard = new SearchBoard(board);
+        final int brickCount = searchBoard.getBrickCount();
+        final int[] moves = new int[searchBoard.getMaxMoveCount()];
+        final int[] path = new int[searchBoard.getMaxMoveCount()];
+
+        while (!tree.isFinished() && !Thread.currentThread().isInterrupted()) {
+            Node node = tree.getRoot();
+
+            // Nodes are only expanded once they have been played out from so that the tree grows towards the playouts
+            // that did best
+            while (node.getVisitCount() > 0 && !searchBoard.isSolved()) {
+                final Node child = node.select(searchBoard, tree);
+                if (child == null) {
+                    break;
+                }
+
+                searchBoard.apply(child.getMove());
+                node = child;
+            }
+
+            final int treeDepth = searchBoard.getDepth();
+
+            if (searchBoard.isSolved() || pruningPipeline.isUnsolvable(searchBoard)) {
+                node.exhaust();
+            } else if (!node.isExhausted()) {
+                int count;
+                while ((count = searchBoard.getMoves(moves, 0)) > 0) {
+                    final int move = moves[random.nextInt(count)];
+
+                    path[searchBoard.getDepth()] = move;
+                    searchBoard.apply(move);
+                }
+            }
+
+            if (searchBoard.isSolved()) {
+                tree.found(getSteps(searchBoard, node, path, treeDepth));
+            }
+
+            final double reward = (double) (brickCount - searchBoard.getBrickCount()) / brickCount;
+
+            while (searchBoard.getDepth() > 0) {
+                searchBoard.undo();
+            }
+
+            for (Node current = node; current != null; current = current.getParent()) {
+                current.backup(reward);
+            }
+
+            tree.played();
+        }
+
+        return null;
+    }
+
+    private LinkedList<Coordinate> getSteps(final SearchBoard searchBoard, final Node node, final int[] path, final int treeDepth) {
+        final LinkedList<Coordinate> steps = new LinkedList<>();
+        for (int i = treeDepth; i < searchBoard.getDepth(); i++) {
+            steps.add(searchBoard.getCoordinate(path[i]));
+        }
+        for (Node current = node; current.getParent() != null; current = current.getParent()) {
+            steps.addFirst(searchBoard.getCoordinate(current.getMove()));
+        }
+
+        return steps;
+    }
+}
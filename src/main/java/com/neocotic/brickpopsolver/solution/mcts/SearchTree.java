@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2018 Alasdair Mercer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.neocotic.brickpopsolver.solution.mcts;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+import com.neocotic.brickpopsolver.Configuration;
+import com.neocotic.brickpopsolver.Coordinate;
+import com.neocotic.brickpopsolver.CustomToStringStyle;
+import com.neocotic.brickpopsolver.solution.Deadline;
+import com.neocotic.brickpopsolver.solution.Solution;
+import com.neocotic.brickpopsolver.solution.SolutionListener;
+
+// The state shared by every worker searching the same board: the tree itself, how long it may be searched for, and the
+// shortest solution found so far, which is passed on to the listener whenever it improves. The tree stops growing once
+// it holds as many nodes as allowed, after which playouts start from its existing leaves.
+final class SearchTree {
+
+    private final Configuration configuration;
+    private final Deadline deadline;
+    private final SolutionListener listener;
+    // Every color needs at least one step to clear it, so no solution can be shorter than the number of colors
+    private final int minStepCount;
+    private final AtomicInteger nodeCount = new AtomicInteger(1);
+    private final int nodeLimit;
+    private final LongAdder playoutCount = new LongAdder();
+    private final Node root = new Node(null, -1);
+    private volatile List<Coordinate> steps;
+
+    SearchTree(final Configuration configuration, final Deadline deadline, final int minStepCount, final SolutionListener listener) {
+        this.configuration = configuration;
+        this.deadline = deadline;
+        this.minStepCount = minStepCount;
+        this.listener = listener;
+        this.nodeLimit = configuration.getNodeLimit();
+    }
+
+    // Returns whether another node may be added to the tree, counting it if so
+    boolean allocate() {
+        if (nodeCount.get() >= nodeLimit) {
+            return false;
+        }
+
+        return nodeCount.incrementAndGet() <= nodeLimit;
+    }
+
+    synchronized void found(final List<Coordinate> steps) {
+        if (this.steps == null || steps.size() < this.steps.size()) {
+            this.steps = steps;
+
+            listener.found(new Solution(configuration, steps));
+        }
+    }
+
+    int getNodeCount() {
+        return Math.min(nodeCount.get(), nodeLimit);
+    }
+
+    long getPlayoutCount() {
+        return playoutCount.sum();
+    }
+
+    Node getRoot() {
+        return root;
+    }
+
+    List<Coordinate> getSteps() {
+        return steps;
+    }
+
+    // Returns whether there is no longer any point in playing out boards, either because a solution has been found that
+    // cannot be beaten, every board in the tree has been exhausted, or time has run out
+    boolean isFinished() {
+        final List<Coordinate> steps = this.steps;
+
+        return (steps != null && steps.size() <= minStepCount) || root.isExhausted() || deadline.isExpired();
+    }
+
+    void played() {
+        playoutCount.increment();
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this, CustomToStringStyle.SHORT_STYLE)
+            .append("nodes", getNodeCount())
+            .append("playouts", getPlayoutCount())
+            .append("rootVisits", root.getVisitCount())
+            .toString();
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2018 Alasdair Mercer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.neocotic.brickpopsolver.solution.ordering;
+
+import com.neocotic.brickpopsolver.SearchBoard;
+import com.neocotic.brickpopsolver.service.AbstractService;
+import com.neocotic.brickpopsolver.solution.MoveOrdering;
+import com.neocotic.brickpopsolver.solution.MoveSorter;
+
+// Searches moves that leave the fewest bricks that cannot currently be popped first. Each move is applied and undone to
+// be scored so this is considerably more expensive than other orderings.
+public final class FewestSingletonsMoveOrdering extends AbstractService implements MoveOrdering {
+
+    public static final String SERVICE_NAME = "fewestSingletons";
+
+    @Override
+    public MoveSorter createSorter(final SearchBoard board) {
+        return new ScoringMoveSorter() {
+            @Override
+            protected int score(final SearchBoard board, final int move) {
+                board.apply(move);
+                final int singletonCount = board.getSingletonCount();
+                board.undo();
+
+                return -singletonCount;
+            }
+        };
+    }
+
+    @Override
+    public String getServiceName() {
+        return SERVICE_NAME;
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2018 Alasdair Mercer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.neocotic.brickpopsolver.solution.ordering;
+
+import com.neocotic.brickpopsolver.SearchBoard;
+import com.neocotic.brickpopsolver.service.AbstractService;
+import com.neocotic.brickpopsolver.solution.MoveOrdering;
+import com.neocotic.brickpopsolver.solution.MoveSorter;
+
+// Searches moves first whose cells have previously led closest to clearing the board elsewhere within the same search.
+// Moves are identified by the cell from which they are read so, much like a history table in other game searches, the
+// scores are only an approximation that is shared by any moves read from the same cell.
+public final class HistoryMoveOrdering extends AbstractService implements MoveOrdering {
+
+    public static final String SERVICE_NAME = "history";
+
+    // Scores are halved once any reaches the limit so that they can never overflow and older results gradually fade
+    private static final int SCORE_LIMIT = 1 << 24;
+
+    @Override
+    public MoveSorter createSorter(final SearchBoard board) {
+        final int[] scores = new int[board.getRows() * board.getColumns()];
+
+        return new ScoringMoveSorter() {
+            @Override
+            public void exhausted(final SearchBoard board, final int move, final int lowestBrickCount) {
+                final int progress = board.getBrickCount() - lowestBrickCount;
+
+                scores[move] += progress * progress;
+
+                if (scores[move] >= SCORE_LIMIT) {
+                    for (int i = 0; i < scores.length; i++) {
+                        scores[i] >>>= 1;
+                    }
+                }
+            }
+
+            @Override
+            protected int score(final SearchBoard board, final int move) {
+                return scores[move];
+            }
+        };
+    }
+
+    @Override
+    public String getServiceName() {
+        return SERVICE_NAME;
+    }
+}
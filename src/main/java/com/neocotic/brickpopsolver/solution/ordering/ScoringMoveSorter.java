@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2018 Alasdair Mercer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.neocotic.brickpopsolver.solution.ordering;
+
+import java.util.Arrays;
+
+import com.neocotic.brickpopsolver.SearchBoard;
+import com.neocotic.brickpopsolver.solution.MoveSorter;
+
+// Sorts moves by descending score, keeping moves with equal scores in the order in which they were read from the board
+abstract class ScoringMoveSorter implements MoveSorter {
+
+    private int[] scores = new int[0];
+
+    @Override
+    public void sort(final SearchBoard board, final int[] moves, final int offset, final int count) {
+        if (scores.length < count) {
+            scores = Arrays.copyOf(scores, Math.max(count, scores.length * 2));
+        }
+
+        for (int i = 0; i < count; i++) {
+            scores[i] = score(board, moves[offset + i]);
+        }
+
+        // Boards rarely have more than a few dozen moves so an insertion sort is both stable and cheap
+        for (int i = 1; i < count; i++) {
+            final int move = moves[offset + i];
+            final int score = scores[i];
+            int j = i - 1;
+
+            while (j >= 0 && scores[j] < score) {
+                moves[offset + j + 1] = moves[offset + j];
+                scores[j + 1] = scores[j];
+                j--;
+            }
+
+            moves[offset + j + 1] = move;
+            scores[j + 1] = score;
+        }
+    }
+
+    protected abstract int score(SearchBoard board, int move);
+}
@@ -32,10 +32,14 @@ import org.slf4j.LoggerFactory;
 import com.neocotic.brickpopsolver.Board;
 import com.neocotic.brickpopsolver.Configuration;
 import com.neocotic.brickpopsolver.service.AbstractService;
+import com.neocotic.brickpopsolver.solution.CancellationToken;
+import com.neocotic.brickpopsolver.solution.Deadline;
+import com.neocotic.brickpopsolver.solution.PruningPipeline;
 import com.neocotic.brickpopsolver.solution.Solution;
 import com.neocotic.brickpopsolver.solution.SolutionException;
 import com.neocotic.brickpopsolver.solution.SolutionSearch;
 import com.neocotic.brickpopsolver.solution.SolutionService;
+import com.neocotic.brickpopsolver.solution.TranspositionTable;
 
 public final class ParallelSolutionService extends AbstractService implements SolutionService {
 
@@ -43,20 +47,46 @@ public final class ParallelSolutionService extends AbstractService implements So
 
     public static final String SERVICE_NAME = "parallel";
 
+    private ExecutorService executor;
+
     @Override
     public String getServiceName() {
         return SERVICE_NAME;
     }
 
+    // Shuts down the executor used to run searches, if any, which will otherwise be reused by every solve. A new
+    // executor will be created should the service be used again afterwards.
+    @Override
+    public synchronized void shutdown() {
+        logger.trace("shutdown:enter()");
+
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+
+            logger.debug("Executor shut down");
+        }
+
+        logger.trace("shutdown:exit()");
+    }
+
     @Override
     public Solution solve(final Board board, final Configuration configuration) throws SolutionException {
         logger.trace("solve:enter(board={}, configuration={})", board, configuration);
 
         logger.debug("Attempting to solve board:{}{}", System.lineSeparator(), board);
 
-        final ExecutorService executor = Executors.newWorkStealingPool();
+        SolutionSearch.getTablebase(configuration);
+
+        final ExecutorService executor = getExecutor();
+        // Searches that lose the race to the first solution, or run out of time, are cancelled so that they stop at
+        // their next board
+        final CancellationToken cancellationToken = new CancellationToken(new Deadline(configuration));
+        // All searches share the same table so that boards exhausted by one are skipped by the others
+        final TranspositionTable transpositionTable = new TranspositionTable(configuration);
+        final PruningPipeline pruningPipeline = new PruningPipeline(configuration);
         final List<SolutionSearch> searches = board.getAvailableMoves().stream()
-            .map(move -> new SolutionSearch(configuration, move))
+            .map(move -> new SolutionSearch(configuration, move, transpositionTable, cancellationToken, pruningPipeline))
             .collect(Collectors.toList());
         Solution solution;
 
@@ -65,14 +95,34 @@ public final class ParallelSolutionService extends AbstractService implements So
 
             logger.debug("Found solution:{}{}", System.lineSeparator(), solution);
         } catch (ExecutionException e) {
-            logger.warn("No solution found", e);
+            if (cancellationToken.isCancelled()) {
+                logger.warn("No solution found within time limit: {}ms", configuration.getTimeLimit());
+            } else {
+                logger.warn("No solution found", e);
+            }
 
             solution = new Solution(configuration);
         } catch (InterruptedException e) {
             throw new SolutionException("Solution failed", e);
+        } finally {
+            cancellationToken.cancel();
         }
 
+        logger.debug("Transposition table usage: {}", transpositionTable);
+        logger.debug("Pruning usage: {}", pruningPipeline);
+
         logger.trace("solve:exit({})", solution);
         return solution;
     }
+
+    private synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            // Work stealing pools use daemon threads so an executor that is never shut down cannot keep the JVM alive
+            executor = Executors.newWorkStealingPool();
+
+            logger.debug("Executor created");
+        }
+
+        return executor;
+    }
 }
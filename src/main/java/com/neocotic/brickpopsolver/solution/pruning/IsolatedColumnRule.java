@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2018 Alasdair Mercer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.neocotic.brickpopsolver.solution.pruning;
+
+import java.util.Arrays;
+
+import com.neocotic.brickpopsolver.Palette;
+import com.neocotic.brickpopsolver.SearchBoard;
+import com.neocotic.brickpopsolver.service.AbstractService;
+import com.neocotic.brickpopsolver.solution.PruningRule;
+
+// A color whose bricks are all within a single column can only ever be grouped vertically, however the rest of the
+// board is played. Other bricks within that column may be popped at any point, so the bricks of all such colors must
+// still be possible to clear from the column as if nothing else were in it.
+public final class IsolatedColumnRule extends AbstractService implements PruningRule {
+
+    public static final String SERVICE_NAME = "isolatedColumn";
+
+    private static final int MULTIPLE_COLUMNS = -2;
+    private static final int NO_COLUMN = -1;
+
+    private static final byte CLEARABLE = 1;
+    private static final byte UNCLEARABLE = 2;
+
+    // Records, for each color, the only column in which it appears or whether it appears in multiple columns
+    private static final ThreadLocal<int[]> colorColumns = ThreadLocal.withInitial(() -> new int[Palette.MAX_SIZE]);
+
+    // Checks whether a column made up of the given runs of colors can be cleared. The first remaining run is popped
+    // together with a chain of later runs of the same color, each gap between them having been cleared beforehand,
+    // which can only be done independently as nothing within a gap can reach past the runs on either side of it.
+    private static boolean isClearable(final int[] runColors, final int[] runLengths, final int runCount) {
+        return isClearable(runColors, runLengths, runCount, 0, runCount - 1, new byte[runCount * runCount], new byte[runCount * runCount * 2]);
+    }
+
+    private static boolean isClearable(final int[] runColors, final int[] runLengths, final int runCount, final int first, final int last, final byte[] clearable, final byte[] chainable) {
+        if (first > last) {
+            return true;
+        }
+
+        final int slot = (first * runCount) + last;
+        if (clearable[slot] == 0) {
+            clearable[slot] = isChainable(runColors, runLengths, runCount, first, last, Math.min(runLengths[first], 2), clearable, chainable) ? CLEARABLE : UNCLEARABLE;
+        }
+
+        return clearable[slot] == CLEARABLE;
+    }
+
+    // Checks whether a chain ending with the given run, and containing the given number of bricks (capped at two), can
+    // be extended or popped such that all of the runs up to the last one are cleared
+    private static boolean isChainable(final int[] runColors, final int[] runLengths, final int runCount, final int run, final int last, final int length, final byte[] clearable, final byte[] chainable) {
+        final int slot = (((run * runCount) + last) * 2) + (length - 1);
+        if (chainable[slot] != 0) {
+            return chainable[slot] == CLEARABLE;
+        }
+
+        boolean result = length == 2 && isClearable(runColors, runLengths, runCount, run + 1, last, clearable, chainable);
+
+        for (int next = run + 2; !result && next <= last; next++) {
+            if (runColors[next] == runColors[run] && isClearable(runColors, runLengths, runCount, run + 1, next - 1, clearable, chainable)) {
+                result = isChainable(runColors, runLengths, runCount, next, last, Math.min(length + runLengths[next], 2), clearable, chainable);
+            }
+        }
+
+        chainable[slot] = result ? CLEARABLE : UNCLEARABLE;
+
+        return result;
+    }
+
+    @Override
+    public String getServiceName() {
+        return SERVICE_NAME;
+    }
+
+    @Override
+    public boolean isUnsolvable(final SearchBoard board) {
+        final int columns = board.getColumns();
+        final int rows = board.getRows();
+        final int[] colorColumns = IsolatedColumnRule.colorColumns.get();
+
+        Arrays.fill(colorColumns, 0, board.getPaletteSize(), NO_COLUMN);
+
+        for (int j = 0; j < columns; j++) {
+            for (int i = rows - 1; i >= 0; i--) {
+                final int id = board.getColorId(i, j);
+                if (id == Palette.EMPTY_ID) {
+                    break;
+                }
+
+                if (colorColumns[id] == NO_COLUMN) {
+                    colorColumns[id] = j;
+                } else if (colorColumns[id] != j) {
+                    colorColumns[id] = MULTIPLE_COLUMNS;
+                }
+            }
+        }
+
+        boolean isolated = false;
+        for (int id = Palette.EMPTY_ID + 1; id < board.getPaletteSize(); id++) {
+            if (colorColumns[id] >= 0) {
+                isolated = true;
+                break;
+            }
+        }
+
+        if (isolated) {
+            for (int j = 0; j < columns; j++) {
+                if (!isClearable(board, j, colorColumns)) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    // Checks whether the bricks within the column whose colors are isolated to it can be cleared, ignoring all others
+    private boolean isClearable(final SearchBoard board, final int column, final int[] colorColumns) {
+        final int rows = board.getRows();
+        int[] runColors = null;
+        int[] runLengths = null;
+        int runCount = 0;
+
+        for (int i = rows - 1; i >= 0; i--) {
+            final int id = board.getColorId(i, column);
+            if (id == Palette.EMPTY_ID) {
+                break;
+            }
+            if (colorColumns[id] != column) {
+                continue;
+            }
+
+            if (runCount > 0 && runColors[runCount - 1] == id) {
+                runLengths[runCount - 1]++;
+            } else {
+                if (runColors == null) {
+                    runColors = new int[rows];
+                    runLengths = new int[rows];
+                }
+
+                runColors[runCount] = id;
+                runLengths[runCount++] = 1;
+            }
+        }
+
+        return runCount == 0 || isClearable(runColors, runLengths, runCount);
+    }
+}
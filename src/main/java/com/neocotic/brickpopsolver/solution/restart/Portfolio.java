@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2018 Alasdair Mercer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.neocotic.brickpopsolver.solution.restart;
+
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+import com.neocotic.brickpopsolver.Configuration;
+import com.neocotic.brickpopsolver.Coordinate;
+import com.neocotic.brickpopsolver.CustomToStringStyle;
+import com.neocotic.brickpopsolver.solution.CancellationToken;
+import com.neocotic.brickpopsolver.solution.Solution;
+import com.neocotic.brickpopsolver.solution.SolutionListener;
+
+// Collects the outcome of every worker restarting searches for the same board. The first solution found wins, as does a
+// search that exhausts the board without restarting, after which every other worker is cancelled.
+final class Portfolio {
+
+    private final LongAdder attemptCount = new LongAdder();
+    private final CancellationToken cancellationToken;
+    private final Configuration configuration;
+    private final SolutionListener listener;
+    private int solvedAttempt;
+    private int solvedWorker = -1;
+    private volatile List<Coordinate> steps;
+    private volatile boolean unsolvable;
+
+    Portfolio(final Configuration configuration, final CancellationToken cancellationToken, final SolutionListener listener) {
+        this.configuration = configuration;
+        this.cancellationToken = cancellationToken;
+        this.listener = listener;
+    }
+
+    void attempted() {
+        attemptCount.increment();
+    }
+
+    synchronized void exhausted() {
+        unsolvable = true;
+
+        cancellationToken.cancel();
+    }
+
+    synchronized void found(final List<Coordinate> steps, final int worker, final int attempt) {
+        if (this.steps != null || unsolvable) {
+            return;
+        }
+
+        this.steps = steps;
+        solvedAttempt = attempt;
+        solvedWorker = worker;
+
+        cancellationToken.cancel();
+
+        listener.found(new Solution(configuration, steps));
+    }
+
+    long getAttemptCount() {
+        return attemptCount.sum();
+    }
+
+    CancellationToken getCancellationToken() {
+        return cancellationToken;
+    }
+
+    List<Coordinate> getSteps() {
+        return steps;
+    }
+
+    boolean isFinished() {
+        return cancellationToken.isCancelled();
+    }
+
+    boolean isUnsolvable() {
+        return unsolvable;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return new ToStringBuilder(this, CustomToStringStyle.SHORT_STYLE)
+            .append("attempts", getAttemptCount())
+            .append("solvedAttempt", solvedWorker >= 0 ? solvedAttempt : null)
+            .append("solvedWorker", solvedWorker >= 0 ? solvedWorker : null)
+            .append("unsolvable", unsolvable)
+            .toString();
+    }
+}
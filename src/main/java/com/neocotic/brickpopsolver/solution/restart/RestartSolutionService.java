@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2018 Alasdair Mercer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.neocotic.brickpopsolver.solution.restart;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.neocotic.brickpopsolver.Board;
+import com.neocotic.brickpopsolver.Configuration;
+import com.neocotic.brickpopsolver.service.AbstractService;
+import com.neocotic.brickpopsolver.solution.CancellationToken;
+import com.neocotic.brickpopsolver.solution.Deadline;
+import com.neocotic.brickpopsolver.solution.PruningPipeline;
+import com.neocotic.brickpopsolver.solution.Solution;
+import com.neocotic.brickpopsolver.solution.SolutionException;
+import com.neocotic.brickpopsolver.solution.SolutionListener;
+import com.neocotic.brickpopsolver.solution.SolutionService;
+import com.neocotic.brickpopsolver.solution.TranspositionTable;
+
+// Searches depth-first, like the serial service, but restarts with differently ordered moves whenever an attempt takes
+// too long, which cuts off the long tail of solve times caused by descending into a huge unsolvable branch first. A
+// portfolio of workers may restart concurrently, each with its own seeds, with the first to finish winning.
+public final class RestartSolutionService extends AbstractService implements SolutionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RestartSolutionService.class);
+
+    public static final String SERVICE_NAME = "restart";
+
+    private ExecutorService executor;
+
+    @Override
+    public String getServiceName() {
+        return SERVICE_NAME;
+    }
+
+    // Shuts down the executor used to run workers, if any, which will otherwise be reused by every solve. A new
+    // executor will be created should the service be used again afterwards.
+    @Override
+    public synchronized void shutdown() {
+        logger.trace("shutdown:enter()");
+
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+
+            logger.debug("Executor shut down");
+        }
+
+        logger.trace("shutdown:exit()");
+    }
+
+    @Override
+    public Solution solve(final Board board, final Configuration configuration) throws SolutionException {
+        return solve(board, configuration, solution -> {
+        });
+    }
+
+    @Override
+    public Solution solve(final Board board, final Configuration configuration, final SolutionListener listener) throws SolutionException {
+        logger.trace("solve:enter(board={}, configuration={}, listener={})", board, configuration, listener);
+
+        logger.debug("Attempting to solve board:{}{}", System.lineSeparator(), board);
+
+        final CancellationToken cancellationToken = new CancellationToken(new Deadline(configuration));
+        final Portfolio portfolio = new Portfolio(configuration, cancellationToken, listener);
+        final PruningPipeline pruningPipeline = new PruningPipeline(configuration);
+        final TranspositionTable transpositionTable = new TranspositionTable(configuration);
+
+        if (board.isSolved()) {
+            portfolio.found(new ArrayList<>(), 0, 0);
+        } else if (configuration.getRestartThreads() <= 1) {
+            // A single worker is run on the calling thread so that it is entirely reproducible from the seed
+            new RestartingSearch(configuration, board, 0, portfolio, transpositionTable, pruningPipeline).call();
+        } else {
+            final ExecutorService executor = getExecutor();
+            final List<Future<Void>> futures = new ArrayList<>();
+
+            try {
+                for (int i = 0; i < configuration.getRestartThreads(); i++) {
+                    futures.add(executor.submit(new RestartingSearch(configuration, board, i, portfolio, transpositionTable, pruningPipeline)));
+                }
+
+                for (final Future<Void> future : futures) {
+                    future.get();
+                }
+            } catch (ExecutionException | InterruptedException e) {
+                throw new SolutionException("Solution failed", e);
+            } finally {
+                cancellationToken.cancel();
+
+                for (final Future<Void> future : futures) {
+                    future.cancel(true);
+                }
+            }
+        }
+
+        logger.debug("Restart usage: {}", portfolio);
+        logger.debug("Transposition table usage: {}", transpositionTable);
+        logger.debug("Pruning usage: {}", pruningPipeline);
+
+        final Solution solution = new Solution(configuration, portfolio.getSteps());
+
+        if (portfolio.getSteps() != null) {
+            logger.debug("Found solution:{}{}", System.lineSeparator(), solution);
+        } else if (portfolio.isUnsolvable()) {
+            logger.warn("No solution found");
+        } else {
+            logger.warn("No solution found within time limit: {}ms", configuration.getTimeLimit());
+        }
+
+        logger.trace("solve:exit({})", solution);
+        return solution;
+    }
+
+    private synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            // Work stealing pools use daemon threads so an executor that is never shut down cannot keep the JVM alive
+            executor = Executors.newWorkStealingPool();
+
+            logger.debug("Executor created");
+        }
+
+        return executor;
+    }
+}
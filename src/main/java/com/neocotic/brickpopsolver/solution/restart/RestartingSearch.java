@@ -0,0 +1,190 @@
+/*
+ * Copyright (C) 2018 Alasdair Mercer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.neocotic.brickpopsolver.solution.restart;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+
+import com.neocotic.brickpopsolver.Board;
+import com.neocotic.brickpopsolver.Configuration;
+import com.neocotic.brickpopsolver.Coordinate;
+import com.neocotic.brickpopsolver.SearchBoard;
+import com.neocotic.brickpopsolver.solution.MoveSorter;
+import com.neocotic.brickpopsolver.solution.PruningPipeline;
+import com.neocotic.brickpopsolver.solution.TranspositionTable;
+
+// Runs attempts to solve a board depth-first, just like SolutionSearch, except that each attempt is abandoned once it
+// has visited more boards than allowed and the next attempt breaks ties between moves differently. Limits follow the
+// Luby sequence (i.e. 1, 1, 2, 1, 1, 2, 4, ...) so that however long a board takes to solve, no more than a logarithmic
+// factor of that is wasted on attempts that got stuck. Boards exhausted by any attempt are shared through the
+// transposition table so later attempts do not have to search them again.
+final class RestartingSearch implements Callable<Void> {
+
+    // Returns the value at the given position, starting at 1, of the Luby sequence
+    static long getLubyValue(final int position) {
+        long index = position;
+        while (true) {
+            // Find the smallest k for which 2^k - 1 reaches the position
+            int k = 1;
+            while ((1L << k) - 1 < index) {
+                k++;
+            }
+
+            if (index == (1L << k) - 1) {
+                return 1L << (k - 1);
+            }
+
+            index -= (1L << (k - 1)) - 1;
+        }
+    }
+
+    private boolean abandoned;
+    private final Board board;
+    private final Configuration configuration;
+    private int lowestBrickCount;
+    private int[] moves;
+    private MoveSorter moveSorter;
+    private long nodeCount;
+    private long nodeLimit;
+    private int[] path;
+    private final Portfolio portfolio;
+    private final PruningPipeline pruningPipeline;
+    private final SplittableRandom random;
+    private final TranspositionTable transpositionTable;
+    private final int worker;
+
+    RestartingSearch(final Configuration configuration, final Board board, final int worker, final Portfolio portfolio, final TranspositionTable transpositionTable, final PruningPipeline pruningPipeline) {
+        this.configuration = configuration;
+        this.board = board;
+        this.worker = worker;
+        this.portfolio = portfolio;
+        this.transpositionTable = transpositionTable;
+        this.pruningPipeline = pruningPipeline;
+        // Each worker draws from its own sequence so that the attempts of a single worker can always be reproduced
+        this.random = new SplittableRandom(configuration.getSeed() + worker);
+    }
+
+    @Override
+    public Void call() {
+        final SearchBoard board = new SearchBoard(this.board);
+        moves = new int[board.getMaxMoveCount()];
+        // Sorters are kept across attempts so that any that learn from exhausted moves carry that over
+        moveSorter = configuration.getMoveOrdering().createSorter(board);
+        path = new int[board.getMaxMoveCount()];
+
+        for (int attempt = 1; !portfolio.isFinished(); attempt++) {
+            abandoned = false;
+            lowestBrickCount = board.getBrickCount();
+            nodeCount = 0;
+            nodeLimit = getLubyValue(attempt) * configuration.getRestartUnit();
+
+            portfolio.attempted();
+
+            if (search(board, 0)) {
+                final List<Coordinate> steps = new ArrayList<>();
+                for (int i = 0; i < board.getDepth(); i++) {
+                    steps.add(board.getCoordinate(path[i]));
+                }
+
+                portfolio.found(steps, worker, attempt);
+            } else if (!abandoned) {
+                portfolio.exhausted();
+            }
+        }
+
+        return null;
+    }
+
+    private boolean search(final SearchBoard board, final int offset) {
+        lowestBrickCount = Math.min(lowestBrickCount, board.getBrickCount());
+
+        if (board.isSolved()) {
+            return true;
+        }
+        if (isAbandoned()) {
+            return false;
+        }
+        if (transpositionTable.isUnsolvable(board.getKey())) {
+            return false;
+        }
+        if (pruningPipeline.isUnsolvable(board)) {
+            return false;
+        }
+
+        if (offset + board.getMaxMoveCount() > moves.length) {
+            moves = Arrays.copyOf(moves, Math.max(moves.length * 2, offset + board.getMaxMoveCount()));
+        }
+
+        final int count = board.getMoves(moves, offset);
+        shuffle(offset, count);
+        // Sorters are stable so shuffling first randomly breaks any ties between the moves that they score
+        moveSorter.sort(board, moves, offset, count);
+
+        for (int i = offset; i < offset + count; i++) {
+            // The fewest bricks reached beneath each move are tracked separately before being merged back in
+            final int lowestBrickCount = this.lowestBrickCount;
+            this.lowestBrickCount = board.getBrickCount();
+
+            path[board.getDepth()] = moves[i];
+            board.apply(moves[i]);
+
+            if (search(board, offset + count)) {
+                return true;
+            }
+
+            board.undo();
+
+            if (abandoned) {
+                return false;
+            }
+
+            moveSorter.exhausted(board, moves[i], this.lowestBrickCount);
+            this.lowestBrickCount = Math.min(lowestBrickCount, this.lowestBrickCount);
+        }
+
+        // Every move has been exhausted so the board can be skipped by this and every other attempt
+        transpositionTable.addUnsolvable(board.getKey(), board.getBrickCount());
+
+        return false;
+    }
+
+    private boolean isAbandoned() {
+        if (!abandoned && (++nodeCount > nodeLimit || portfolio.isFinished() || Thread.currentThread().isInterrupted())) {
+            abandoned = true;
+        }
+
+        return abandoned;
+    }
+
+    private void shuffle(final int offset, final int count) {
+        for (int i = count - 1; i > 0; i--) {
+            final int j = random.nextInt(i + 1);
+            final int move = moves[offset + i];
+
+            moves[offset + i] = moves[offset + j];
+            moves[offset + j] = move;
+        }
+    }
+}
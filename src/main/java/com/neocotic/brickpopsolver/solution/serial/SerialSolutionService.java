@@ -21,6 +21,7 @@
  */
 package com.neocotic.brickpopsolver.solution.serial;
 
+import java.util.Iterator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -28,10 +29,14 @@ import com.neocotic.brickpopsolver.Board;
 import com.neocotic.brickpopsolver.Configuration;
 import com.neocotic.brickpopsolver.Move;
 import com.neocotic.brickpopsolver.service.AbstractService;
+import com.neocotic.brickpopsolver.solution.CancellationToken;
+import com.neocotic.brickpopsolver.solution.Deadline;
+import com.neocotic.brickpopsolver.solution.PruningPipeline;
 import com.neocotic.brickpopsolver.solution.Solution;
 import com.neocotic.brickpopsolver.solution.SolutionException;
 import com.neocotic.brickpopsolver.solution.SolutionSearch;
 import com.neocotic.brickpopsolver.solution.SolutionService;
+import com.neocotic.brickpopsolver.solution.TranspositionTable;
 
 public final class SerialSolutionService extends AbstractService implements SolutionService {
 
@@ -50,11 +55,22 @@ public final class SerialSolutionService extends AbstractService implements Solu
 
         logger.debug("Attempting to solve board:{}{}", System.lineSeparator(), board);
 
-        for (final Move move : board.getAvailableMoves()) {
+        SolutionSearch.getTablebase(configuration);
+
+        final CancellationToken cancellationToken = new CancellationToken(new Deadline(configuration));
+        final PruningPipeline pruningPipeline = new PruningPipeline(configuration);
+        final TranspositionTable transpositionTable = new TranspositionTable(configuration);
+        // Moves are iterated so that boards are only derived for those reached before a solution is found
+        final Iterator<Move> moves = board.iterateAvailableMoves();
+        while (moves.hasNext() && !cancellationToken.isCancelled()) {
+            final Move move = moves.next();
+
             try {
-                final Solution solution = new SolutionSearch(configuration, move).search();
+                final Solution solution = new SolutionSearch(configuration, move, transpositionTable, cancellationToken, pruningPipeline).search();
 
                 logger.debug("Found solution:{}{}", System.lineSeparator(), solution);
+                logger.debug("Transposition table usage: {}", transpositionTable);
+                logger.debug("Pruning usage: {}", pruningPipeline);
 
                 logger.trace("solve:exit({})", solution);
                 return solution;
@@ -63,7 +79,14 @@ public final class SerialSolutionService extends AbstractService implements Solu
             }
         }
 
-        logger.warn("No solution found");
+        if (cancellationToken.isCancelled()) {
+            logger.warn("No solution found within time limit: {}ms", configuration.getTimeLimit());
+        } else {
+            logger.warn("No solution found");
+        }
+
+        logger.debug("Transposition table usage: {}", transpositionTable);
+        logger.debug("Pruning usage: {}", pruningPipeline);
 
         final Solution solution = new Solution(configuration);
 
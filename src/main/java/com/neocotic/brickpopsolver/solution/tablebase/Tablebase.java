@@ -0,0 +1,234 @@
+/*
+ * Copyright (C) 2018 Alasdair Mercer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.neocotic.brickpopsolver.solution.tablebase;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+import com.neocotic.brickpopsolver.Configuration;
+import com.neocotic.brickpopsolver.CustomToStringStyle;
+import com.neocotic.brickpopsolver.Palette;
+import com.neocotic.brickpopsolver.SearchBoard;
+
+// Answers exactly whether boards with only a few bricks left can be solved, and how, by looking them up in a
+// memory-mapped table written by TablebaseGenerator. Boards are looked up by a canonical code that only depends on the
+// shape of the bricks and which of them share a color, which is all that decides how a board can be solved. Bricks are
+// visited column by column from the left, and from the bottom up within each column, with colors relabeled in the order
+// that they are first seen. Each brick adds five bits to the code: whether it starts a new column and its label. A
+// leading bit marks where the code starts.
+//
+// Only boards that can be solved are held in the table, each with the number of moves needed to solve it and a brick
+// within the group of a first move, so any board within its limits that is not found cannot be solved.
+public final class Tablebase {
+
+    static final int HEADER_LENGTH = Integer.BYTES * 6;
+    static final int MAGIC = 0x42505442;
+    // Every brick adds five bits to a code, which must fit within a long along with its leading bit
+    static final int MAX_BRICK_COUNT = 12;
+    static final int VERSION = 1;
+
+    private static final Map<Path, Tablebase> tablebases = new ConcurrentHashMap<>();
+
+    // Returns the tablebase that is to be consulted for the configuration, which is opened the first time that it is
+    // needed and shared from then on, or null if no tablebase is to be consulted
+    public static Tablebase get(final Configuration configuration) throws IOException {
+        if (configuration.getTablebaseThreshold() <= 0) {
+            return null;
+        }
+
+        final Path file = configuration.getTablebaseFile().toAbsolutePath();
+        Tablebase tablebase = tablebases.get(file);
+
+        if (tablebase == null) {
+            tablebase = new Tablebase(file);
+
+            final Tablebase existing = tablebases.putIfAbsent(file, tablebase);
+            if (existing != null) {
+                tablebase = existing;
+            }
+        }
+
+        return tablebase;
+    }
+
+    static int slot(final long code, final int mask) {
+        return (int) ((code * 0x9e3779b97f4a7c15L) >>> 32) & mask;
+    }
+
+    private static long getCode(final SearchBoard board) {
+        final int[] labels = new int[board.getPaletteSize()];
+        final int rows = board.getRows();
+        int labelCount = 0;
+        long code = 1;
+
+        for (int j = 0; j < board.getColumns(); j++) {
+            for (int i = rows - 1; i >= 0; i--) {
+                final int id = board.getColorId(i, j);
+                if (id == Palette.EMPTY_ID) {
+                    break;
+                }
+
+                if (labels[id] == 0) {
+                    labels[id] = ++labelCount;
+                }
+
+                code = (code << 5) | (i == rows - 1 ? 0x10 : 0) | (labels[id] - 1);
+            }
+        }
+
+        return code;
+    }
+
+    // Returns the move for the brick at the given position in the order that bricks are visited within codes
+    private static int getMove(final SearchBoard board, final int brick) {
+        final int rows = board.getRows();
+        int remaining = brick;
+
+        for (int j = 0; j < board.getColumns(); j++) {
+            for (int i = rows - 1; i >= 0 && board.getColorId(i, j) != Palette.EMPTY_ID; i--) {
+                if (remaining-- == 0) {
+                    return (j * rows) + i;
+                }
+            }
+        }
+
+        throw new IllegalStateException(String.format("Brick is not on board: %d", brick));
+    }
+
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private final Path file;
+    private final int mask;
+    private final int maxBrickCount;
+    private final int maxColorCount;
+    private final int size;
+
+    public Tablebase(final Path file) throws IOException {
+        this.file = Objects.requireNonNull(file, "file");
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        if (buffer.limit() < HEADER_LENGTH || buffer.getInt(0) != MAGIC || buffer.getInt(Integer.BYTES) != VERSION) {
+            throw new IOException("File is not a tablebase: " + file);
+        }
+
+        maxBrickCount = buffer.getInt(Integer.BYTES * 2);
+        maxColorCount = buffer.getInt(Integer.BYTES * 3);
+        capacity = buffer.getInt(Integer.BYTES * 4);
+        size = buffer.getInt(Integer.BYTES * 5);
+        mask = capacity - 1;
+
+        if (Integer.bitCount(capacity) != 1 || maxBrickCount > MAX_BRICK_COUNT || buffer.limit() != HEADER_LENGTH + ((long) capacity * (Long.BYTES + 1))) {
+            throw new IOException("Tablebase is corrupt: " + file);
+        }
+    }
+
+    // Returns whether the board is within the limits of the tablebase, in which case it can be looked up
+    public boolean contains(final SearchBoard board) {
+        return board.getBrickCount() <= maxBrickCount && board.getDistinctColorCount() <= maxColorCount;
+    }
+
+    // Returns the number of moves needed to solve the board, or -1 if it cannot be solved
+    public int getDistance(final SearchBoard board) {
+        if (board.isSolved()) {
+            return 0;
+        }
+
+        final int value = find(getCode(board));
+
+        return value < 0 ? -1 : value >>> 4;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public int getMaxBrickCount() {
+        return maxBrickCount;
+    }
+
+    public int getMaxColorCount() {
+        return maxColorCount;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Applies the moves of a shortest solution to the board, writing each to the moves from the offset, and returns how
+    // many were applied, or -1 if the board cannot be solved, in which case it is left untouched
+    public int solve(final SearchBoard board, final int[] moves, final int offset) {
+        int count = 0;
+
+        while (!board.isSolved()) {
+            final int value = find(getCode(board));
+            if (value < 0) {
+                if (count > 0) {
+                    throw new IllegalStateException("Tablebase is missing a board that it leads to: " + file);
+                }
+
+                return -1;
+            }
+
+            final int move = getMove(board, value & 0xF);
+
+            moves[offset + count++] = move;
+            board.apply(move);
+        }
+
+        return count;
+    }
+
+    private int find(final long code) {
+        int slot = slot(code, mask);
+        long entry;
+
+        while ((entry = buffer.getLong(HEADER_LENGTH + (slot * Long.BYTES))) != 0) {
+            if (entry == code) {
+                return buffer.get(HEADER_LENGTH + (capacity * Long.BYTES) + slot) & 0xFF;
+            }
+
+            slot = (slot + 1) & mask;
+        }
+
+        return -1;
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this, CustomToStringStyle.SHORT_STYLE)
+            .append("file", file)
+            .append("size", size)
+            .append("maxBrickCount", maxBrickCount)
+            .append("maxColorCount", maxColorCount)
+            .toString();
+    }
+}
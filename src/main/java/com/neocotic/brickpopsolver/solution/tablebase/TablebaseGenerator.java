@@ -0,0 +1,369 @@
+/*
+ * Copyright (C) 2018 Alasdair Mercer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.neocotic.brickpopsolver.solution.tablebase;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// Writes a tablebase holding every board with up to the given number of bricks, of up to the given number of colors,
+// that can be solved. Boards are enumerated by the number of bricks they hold, from the fewest up, as every move
+// removes at least two bricks and so always leads to a board that has already been solved. Boards are enumerated as the
+// heights of their columns, along with a label for each brick that is never greater than one more than any label before
+// it, so that every canonical code is visited exactly once. Boards where any color has a single brick are skipped as
+// they can never be solved.
+public final class TablebaseGenerator {
+
+    private static final Logger logger = LoggerFactory.getLogger(TablebaseGenerator.class);
+
+    private static final int DEFAULT_MAX_COLOR_COUNT = 5;
+    private static final int INITIAL_CAPACITY = 1 << 10;
+
+    public static void main(final String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: TablebaseGenerator <file> <maxBrickCount> [maxColorCount]");
+            System.exit(1);
+        }
+
+        final Path file = Paths.get(args[0]);
+        final int maxBrickCount = Integer.parseInt(args[1]);
+        final int maxColorCount = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_MAX_COLOR_COUNT;
+
+        new TablebaseGenerator(maxBrickCount, maxColorCount).generate(file);
+    }
+
+    private long[] codes = new long[INITIAL_CAPACITY];
+    // Scratch space for the board being solved, indexed by the position of each brick in the order they are visited
+    private final int[] columnStarts;
+    private final int[] group;
+    private final int[] heights;
+    private final int[] labels;
+    private final int[] labelCounts;
+    private final int maxBrickCount;
+    private final int maxColorCount;
+    private final int[] relabels;
+    private int size;
+    private byte[] values = new byte[INITIAL_CAPACITY];
+    private final boolean[] visited;
+
+    public TablebaseGenerator(final int maxBrickCount, final int maxColorCount) {
+        if (maxBrickCount < 0 || maxBrickCount > Tablebase.MAX_BRICK_COUNT) {
+            throw new IllegalArgumentException(String.format("maxBrickCount must be between 0 and %d: %d", Tablebase.MAX_BRICK_COUNT, maxBrickCount));
+        }
+        if (maxColorCount < 1) {
+            throw new IllegalArgumentException(String.format("maxColorCount must be positive: %d", maxColorCount));
+        }
+
+        this.maxBrickCount = maxBrickCount;
+        this.maxColorCount = maxColorCount;
+        this.columnStarts = new int[maxBrickCount + 1];
+        this.group = new int[maxBrickCount];
+        this.heights = new int[maxBrickCount];
+        this.labels = new int[maxBrickCount];
+        this.labelCounts = new int[maxColorCount];
+        this.relabels = new int[maxColorCount];
+        this.visited = new boolean[maxBrickCount];
+    }
+
+    public void generate(final Path file) throws IOException {
+        logger.trace("generate:enter(file={})", file);
+
+        final Instant start = Instant.now();
+
+        // Every move removes at least two bricks so boards with a single brick can never be solved
+        for (int brickCount = 2; brickCount <= maxBrickCount; brickCount++) {
+            final int previousSize = size;
+
+            enumerateColumns(brickCount, 0, 0);
+
+            logger.info("Found {} solvable boards with {} bricks", size - previousSize, brickCount);
+        }
+
+        write(file);
+
+        logger.info("Wrote {} solvable boards to {} in {}ms", size, file, Duration.between(start, Instant.now()).toMillis());
+
+        logger.trace("generate:exit()");
+    }
+
+    // Enumerates every way of splitting the bricks into columns before labeling them
+    private void enumerateColumns(final int brickCount, final int columns, final int bricks) {
+        columnStarts[columns] = bricks;
+
+        if (bricks == brickCount) {
+            label(brickCount, columns, 0, 0);
+
+            return;
+        }
+
+        for (int height = 1; bricks + height <= brickCount; height++) {
+            heights[columns] = height;
+            enumerateColumns(brickCount, columns + 1, bricks + height);
+        }
+    }
+
+    private void label(final int brickCount, final int columns, final int brick, final int labelCount) {
+        if (brick == brickCount) {
+            for (int label = 0; label < labelCount; label++) {
+                if (labelCounts[label] < 2) {
+                    return;
+                }
+            }
+
+            solve(brickCount, columns);
+
+            return;
+        }
+
+        for (int label = 0; label <= labelCount && label < maxColorCount; label++) {
+            labels[brick] = label;
+            labelCounts[label]++;
+
+            label(brickCount, columns, brick + 1, Math.max(labelCount, label + 1));
+
+            labelCounts[label]--;
+        }
+    }
+
+    private void solve(final int brickCount, final int columns) {
+        Arrays.fill(visited, 0, brickCount, false);
+
+        int bestDistance = Integer.MAX_VALUE;
+        int bestMove = -1;
+
+        for (int brick = 0; brick < brickCount; brick++) {
+            if (visited[brick]) {
+                continue;
+            }
+
+            final int groupSize = fill(brick, columns);
+            if (groupSize < 2) {
+                continue;
+            }
+
+            final int distance;
+            if (groupSize == brickCount) {
+                distance = 0;
+            } else {
+                final int value = find(getChildCode(brickCount, columns, groupSize));
+                if (value < 0) {
+                    continue;
+                }
+
+                distance = value >>> 4;
+            }
+
+            if (distance + 1 < bestDistance) {
+                bestDistance = distance + 1;
+                bestMove = brick;
+            }
+        }
+
+        if (bestMove >= 0) {
+            add(getCode(brickCount), (byte) ((bestDistance << 4) | bestMove));
+        }
+    }
+
+    // Flood fills the group of the brick, leaving its bricks at the start of the group and marking them as visited
+    private int fill(final int brick, final int columns) {
+        int groupSize = 0;
+        group[groupSize++] = brick;
+        visited[brick] = true;
+
+        for (int i = 0; i < groupSize; i++) {
+            final int current = group[i];
+            final int column = getColumn(current, columns);
+            final int row = current - columnStarts[column];
+
+            if (row > 0) {
+                groupSize = visit(current - 1, labels[brick], groupSize);
+            }
+            if (row + 1 < heights[column]) {
+                groupSize = visit(current + 1, labels[brick], groupSize);
+            }
+            if (column > 0 && row < heights[column - 1]) {
+                groupSize = visit(columnStarts[column - 1] + row, labels[brick], groupSize);
+            }
+            if (column + 1 < columns && row < heights[column + 1]) {
+                groupSize = visit(columnStarts[column + 1] + row, labels[brick], groupSize);
+            }
+        }
+
+        return groupSize;
+    }
+
+    private int visit(final int brick, final int label, final int groupSize) {
+        if (visited[brick] || labels[brick] != label) {
+            return groupSize;
+        }
+
+        visited[brick] = true;
+        group[groupSize] = brick;
+
+        return groupSize + 1;
+    }
+
+    private int getColumn(final int brick, final int columns) {
+        int column = 0;
+        while (column + 1 < columns && columnStarts[column + 1] <= brick) {
+            column++;
+        }
+
+        return column;
+    }
+
+    private long getCode(final int brickCount) {
+        long code = 1;
+        int column = 0;
+
+        for (int brick = 0; brick < brickCount; brick++) {
+            final boolean columnStart = brick == columnStarts[column];
+            if (columnStart) {
+                column++;
+            }
+
+            code = (code << 5) | (columnStart ? 0x10 : 0) | labels[brick];
+        }
+
+        return code;
+    }
+
+    // Returns the code of the board left once the group has been popped, where the bricks above it fall and any column
+    // left empty is removed, relabeling colors in the order that they are now first seen
+    private long getChildCode(final int brickCount, final int columns, final int groupSize) {
+        Arrays.fill(relabels, -1);
+
+        int labelCount = 0;
+        long code = 1;
+
+        for (int column = 0; column < columns; column++) {
+            boolean columnStart = true;
+
+            for (int brick = columnStarts[column]; brick < columnStarts[column] + heights[column]; brick++) {
+                if (isGrouped(brick, groupSize)) {
+                    continue;
+                }
+
+                if (relabels[labels[brick]] < 0) {
+                    relabels[labels[brick]] = labelCount++;
+                }
+
+                code = (code << 5) | (columnStart ? 0x10 : 0) | relabels[labels[brick]];
+                columnStart = false;
+            }
+        }
+
+        return code;
+    }
+
+    private boolean isGrouped(final int brick, final int groupSize) {
+        for (int i = 0; i < groupSize; i++) {
+            if (group[i] == brick) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private void add(final long code, final byte value) {
+        // Table is kept no more than half full so that probe sequences stay short
+        if ((size + 1) * 2 > codes.length) {
+            resize();
+        }
+
+        final int mask = codes.length - 1;
+        int slot = Tablebase.slot(code, mask);
+
+        while (codes[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+
+        codes[slot] = code;
+        values[slot] = value;
+        size++;
+    }
+
+    private int find(final long code) {
+        final int mask = codes.length - 1;
+        int slot = Tablebase.slot(code, mask);
+
+        while (codes[slot] != 0) {
+            if (codes[slot] == code) {
+                return values[slot] & 0xFF;
+            }
+
+            slot = (slot + 1) & mask;
+        }
+
+        return -1;
+    }
+
+    private void resize() {
+        final long[] previousCodes = codes;
+        final byte[] previousValues = values;
+        codes = new long[previousCodes.length * 2];
+        values = new byte[previousCodes.length * 2];
+
+        final int mask = codes.length - 1;
+        for (int i = 0; i < previousCodes.length; i++) {
+            if (previousCodes[i] != 0) {
+                int slot = Tablebase.slot(previousCodes[i], mask);
+                while (codes[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+
+                codes[slot] = previousCodes[i];
+                values[slot] = previousValues[i];
+            }
+        }
+    }
+
+    private void write(final Path file) throws IOException {
+        final long length = Tablebase.HEADER_LENGTH + ((long) codes.length * (Long.BYTES + 1));
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("Tablebase is too large to be mapped: " + length);
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+            buffer.putInt(Tablebase.MAGIC);
+            buffer.putInt(Tablebase.VERSION);
+            buffer.putInt(maxBrickCount);
+            buffer.putInt(maxColorCount);
+            buffer.putInt(codes.length);
+            buffer.putInt(size);
+            buffer.asLongBuffer().put(codes);
+            buffer.position(Tablebase.HEADER_LENGTH + (codes.length * Long.BYTES));
+            buffer.put(values);
+            buffer.force();
+        }
+    }
+}
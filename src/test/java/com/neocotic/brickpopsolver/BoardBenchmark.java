@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2018 Alasdair Mercer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.neocotic.brickpopsolver;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Measures how long it takes to derive the boards reached by every move, to a fixed depth, from a corpus of random
+// boards. The components of each of those boards are both derived from those of its parent and labeled from scratch,
+// so that the saving of deriving them can be told apart from the rest of the work of reaching a board. Both boards
+// derived through their moves and a single search board, that applies and undoes each move, are also measured.
+//
+// Arguments: [rows columns depth [count [colorCount]]], defaulting to 10 16 3 20 4
+public final class BoardBenchmark {
+
+    private static final int ROUND_COUNT = 5;
+    private static final long SEED = 11;
+
+    public static void main(final String[] args) {
+        final int rows = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        final int columns = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        final int depth = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+        final int count = args.length > 3 ? Integer.parseInt(args[3]) : 20;
+        final int colorCount = args.length > 4 ? Integer.parseInt(args[4]) : 4;
+        final List<Board> boards = Boards.random(SEED, count, rows, columns, colorCount);
+
+        System.out.printf("%d boards of %dx%d with %d colors expanded to depth %d%n", count, rows, columns, colorCount, depth);
+
+        // Earlier rounds give the JIT compiler a chance to settle, so the last round is the one to go by
+        for (int round = 1; round <= ROUND_COUNT; round++) {
+            final Labeling labeling = new Labeling();
+            for (final Board board : boards) {
+                label(board, depth, labeling);
+            }
+
+            if (labeling.derivedCount != labeling.labeledCount) {
+                throw new AssertionError(String.format("Derived %d components but labeled %d", labeling.derivedCount, labeling.labeledCount));
+            }
+
+            final double deriveNanos = (double) labeling.deriveNanos / labeling.boardCount;
+            final double labelNanos = (double) labeling.labelNanos / labeling.boardCount;
+
+            long nodeCount = 0;
+            long start = System.nanoTime();
+            for (final Board board : boards) {
+                nodeCount += expand(board, depth);
+            }
+
+            final double boardNanos = (double) (System.nanoTime() - start) / nodeCount;
+
+            nodeCount = 0;
+            start = System.nanoTime();
+            for (final Board board : boards) {
+                final SearchBoard searchBoard = new SearchBoard(board);
+
+                nodeCount += expand(searchBoard, new int[(depth + 1) * searchBoard.getMaxMoveCount()], depth);
+            }
+
+            final double searchBoardNanos = (double) (System.nanoTime() - start) / nodeCount;
+
+            System.out.printf("round %d: %d nodes, derive %.1f ns/node, label %.1f ns/node (%.2fx), Board %.1f ns/node, SearchBoard %.1f ns/node%n", round, nodeCount, deriveNanos, labelNanos, labelNanos / deriveNanos, boardNanos, searchBoardNanos);
+        }
+    }
+
+    private static long expand(final Board board, final int depth) {
+        long nodeCount = 1;
+        if (depth > 0) {
+            for (final Move move : board.getAvailableMoves()) {
+                nodeCount += expand(move.getBoard(), depth - 1);
+            }
+        }
+
+        return nodeCount;
+    }
+
+    // Moves of every depth are kept one after another in the same buffer, as searches do
+    private static long expand(final SearchBoard board, final int[] moves, final int depth) {
+        long nodeCount = 1;
+        if (depth > 0) {
+            final int offset = board.getDepth() * board.getMaxMoveCount();
+            final int count = board.getMoves(moves, offset);
+
+            for (int i = offset; i < offset + count; i++) {
+                board.apply(moves[i]);
+                nodeCount += expand(board, moves, depth - 1);
+                board.undo();
+            }
+        }
+
+        return nodeCount;
+    }
+
+    // Times deriving the components of every board reached by a move from those of the given board against labeling
+    // them from scratch, before doing the same for each of those boards in turn. Random boards are full, and so
+    // settled, as is every board reached from them, so components can always be derived.
+    private static void label(final Board board, final int depth, final Labeling labeling) {
+        if (depth == 0) {
+            return;
+        }
+
+        final int rows = board.getRows();
+        final Components components = Components.label(board.getCells(), rows, board.getColumns(), board.getNeighbors());
+        final List<Board> children = new ArrayList<>();
+        final int[] dirtyColumns = new int[components.getCount()];
+
+        for (int label = 0; label < components.getCount(); label++) {
+            if (components.getSize(label) > 1) {
+                dirtyColumns[children.size()] = components.getMinColumn(label);
+                children.add(board.popFrom(components, label));
+            }
+        }
+
+        // Children are timed together, rather than one by one, so that reading the clock is not what is measured
+        long start = System.nanoTime();
+        for (int i = 0; i < children.size(); i++) {
+            final Board child = children.get(i);
+
+            labeling.derivedCount += Components.derive(components, dirtyColumns[i], child.getCells(), rows, child.getColumns(), child.getNeighbors()).getCount();
+        }
+
+        labeling.deriveNanos += System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (final Board child : children) {
+            labeling.labeledCount += Components.label(child.getCells(), rows, child.getColumns(), child.getNeighbors()).getCount();
+        }
+
+        labeling.labelNanos += System.nanoTime() - start;
+        labeling.boardCount += children.size();
+
+        for (final Board child : children) {
+            label(child, depth - 1, labeling);
+        }
+    }
+
+    private static final class Labeling {
+
+        private long boardCount;
+        private long deriveNanos;
+        private long derivedCount;
+        private long labelNanos;
+        private long labeledCount;
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2018 Alasdair Mercer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.neocotic.brickpopsolver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Creates boards for checks and benchmarks from a seeded source of randomness so that every run sees the same boards
+public final class Boards {
+
+    // None of these is the empty color
+    private static final Color[] COLORS = {
+        new Color("aa0000"),
+        new Color("00aa00"),
+        new Color("0000aa"),
+        new Color("aaaa00"),
+        new Color("00aaaa"),
+        new Color("aa00aa")
+    };
+
+    public static List<Board> random(final long seed, final int count, final int rows, final int columns, final int colorCount) {
+        final Random random = new Random(seed);
+        final List<Board> boards = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            boards.add(random(random, rows, columns, colorCount));
+        }
+
+        return boards;
+    }
+
+    public static Board random(final Random random, final int rows, final int columns, final int colorCount) {
+        if (colorCount < 1 || colorCount > COLORS.length) {
+            throw new IllegalArgumentException(String.format("colorCount must be between 1 and %d: %d", COLORS.length, colorCount));
+        }
+
+        final Color[][] grid = new Color[rows][columns];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < columns; j++) {
+                grid[i][j] = COLORS[random.nextInt(colorCount)];
+            }
+        }
+
+        return new Board(grid);
+    }
+
+    // Plays the steps on the board, throwing an AssertionError unless each one pops a group of bricks and the board is
+    // solved by the last of them
+    public static void verify(final Board board, final List<Coordinate> steps) {
+        Board current = board;
+
+        for (final Coordinate step : steps) {
+            final SearchBoard searchBoard = new SearchBoard(current);
+            searchBoard.apply(step);
+
+            final Board next = searchBoard.toBoard();
+            // Every move pops at least two bricks, so a step that pops a single brick never leads to a move's board
+            if (current.getAvailableMoves().stream().noneMatch(move -> move.getBoard().equals(next))) {
+                throw new AssertionError(String.format("Step does not pop a group: %s", step));
+            }
+
+            current = next;
+        }
+
+        if (!current.isSolved()) {
+            throw new AssertionError(String.format("Steps do not solve the board:%s%s", System.lineSeparator(), board));
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2018 Alasdair Mercer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.neocotic.brickpopsolver;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+import com.sun.management.ThreadMXBean;
+
+// Checks that flood filling allocates nothing once its engine has grown to fit the board, as a fill is run for every
+// move of every board that is searched. Exits by throwing an AssertionError if anything was allocated.
+public final class FloodFillAllocationCheck {
+
+    private static final int COLUMNS = 10;
+    private static final int FILL_COUNT = 1000000;
+    private static final int ROWS = 10;
+
+    public static void main(final String[] args) {
+        final ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!threads.isThreadAllocatedMemorySupported()) {
+            throw new IllegalStateException("Allocations cannot be measured by this JVM");
+        }
+
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        final Random random = new Random(0);
+        final byte[] cells = new byte[ROWS * COLUMNS];
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = (byte) (1 + random.nextInt(4));
+        }
+
+        final int[] neighbors = FloodFill.neighbors(ROWS, COLUMNS);
+        final FloodFill floodFill = FloodFill.get();
+        // The first fills grow the engine to fit the board and give the JIT compiler a chance to settle
+        fill(floodFill, cells, neighbors);
+
+        final long threadId = Thread.currentThread().getId();
+        final long before = threads.getThreadAllocatedBytes(threadId);
+        final long filled = fill(floodFill, cells, neighbors);
+        final long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        System.out.printf("%d fills of a %dx%d board flooded %d cells and allocated %d bytes%n", FILL_COUNT, ROWS, COLUMNS, filled, allocated);
+
+        if (allocated > 0) {
+            throw new AssertionError(String.format("Flood fill allocated %d bytes", allocated));
+        }
+    }
+
+    private static long fill(final FloodFill floodFill, final byte[] cells, final int[] neighbors) {
+        long filled = 0;
+        for (int i = 0; i < FILL_COUNT; i++) {
+            filled += floodFill.fill(cells, cells.length, neighbors, i % cells.length);
+        }
+
+        return filled;
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2018 Alasdair Mercer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.neocotic.brickpopsolver.solution;
+
+import java.util.List;
+
+import com.neocotic.brickpopsolver.Board;
+import com.neocotic.brickpopsolver.Boards;
+import com.neocotic.brickpopsolver.Configuration;
+import com.neocotic.brickpopsolver.Move;
+
+// Searches random boards as the serial service does, both with and without partial order reduction, and checks that
+// the same boards are found to be solvable, that every solution is valid, and that the reduced search never expands
+// more boards than the full one. No transposition table is used for those searches, as it would otherwise hide the
+// boards that the reduction skips. Boards are then searched again with the default configuration, where boards found
+// to be unsolvable with sleep sets are also kept in a transposition table, and checked against the full search in the
+// same way. Exits by throwing an AssertionError on the first board that fails.
+public final class PartialOrderReductionCheck {
+
+    private static final int COLOR_COUNT = 4;
+    private static final long SEED = 7;
+
+    public static void main(final String[] args) throws Exception {
+        final Configuration full = new Configuration.Builder()
+            .solutionServiceName("serial")
+            .transpositionTableSize(0)
+            .partialOrderReduction(false)
+            .build();
+        final Configuration reduced = new Configuration.Builder()
+            .solutionServiceName("serial")
+            .transpositionTableSize(0)
+            .partialOrderReduction(true)
+            .build();
+        final Configuration defaults = new Configuration.Builder()
+            .solutionServiceName("serial")
+            .build();
+
+        check(Boards.random(SEED, 2000, 4, 4, COLOR_COUNT), full, reduced, defaults);
+        check(Boards.random(SEED, 500, 5, 5, COLOR_COUNT), full, reduced, defaults);
+        check(Boards.random(SEED, 50, 6, 6, COLOR_COUNT), full, reduced, defaults);
+    }
+
+    private static void check(final List<Board> boards, final Configuration full, final Configuration reduced, final Configuration defaults) {
+        long fullNodeCount = 0;
+        long reducedNodeCount = 0;
+        int solvableCount = 0;
+
+        for (final Board board : boards) {
+            final PruningPipeline fullPipeline = new PruningPipeline(full);
+            final Solution fullSolution = solve(board, full, fullPipeline);
+            final PruningPipeline reducedPipeline = new PruningPipeline(reduced);
+            final Solution reducedSolution = solve(board, reduced, reducedPipeline);
+
+            if (fullSolution.isEmpty() != reducedSolution.isEmpty()) {
+                throw new AssertionError(String.format("Solvability differs with reduction (%s without):%s%s", !fullSolution.isEmpty(), System.lineSeparator(), board));
+            }
+            // Boards are checked by the pipeline as they are reached, so the number of checks is the number expanded
+            if (reducedPipeline.getCheckCount() > fullPipeline.getCheckCount()) {
+                throw new AssertionError(String.format("Reduction expanded %d boards rather than %d:%s%s", reducedPipeline.getCheckCount(), fullPipeline.getCheckCount(), System.lineSeparator(), board));
+            }
+
+            if (!reducedSolution.isEmpty()) {
+                Boards.verify(board, reducedSolution.getSteps());
+                solvableCount++;
+            }
+
+            // Node counts are not compared here as the table may skip different boards depending on the order they are
+            // reached in
+            final Solution defaultSolution = solve(board, defaults, new PruningPipeline(defaults));
+
+            if (fullSolution.isEmpty() != defaultSolution.isEmpty()) {
+                throw new AssertionError(String.format("Solvability differs by default (%s without reduction):%s%s", !fullSolution.isEmpty(), System.lineSeparator(), board));
+            }
+
+            if (!defaultSolution.isEmpty()) {
+                Boards.verify(board, defaultSolution.getSteps());
+            }
+
+            fullNodeCount += fullPipeline.getCheckCount();
+            reducedNodeCount += reducedPipeline.getCheckCount();
+        }
+
+        final Board first = boards.get(0);
+
+        System.out.printf("%dx%d: %d boards, %d solvable, %d boards expanded without reduction and %d (%.1f%%) with it%n", first.getRows(), first.getColumns(), boards.size(), solvableCount, fullNodeCount, reducedNodeCount, 100.0 * reducedNodeCount / Math.max(fullNodeCount, 1));
+    }
+
+    // Tries each move in turn, as the serial service does, with the pipeline given so that boards can be counted
+    private static Solution solve(final Board board, final Configuration configuration, final PruningPipeline pruningPipeline) {
+        final TranspositionTable transpositionTable = new TranspositionTable(configuration);
+
+        for (final Move move : board.getAvailableMoves()) {
+            try {
+                return new SolutionSearch(configuration, move, transpositionTable, new CancellationToken(), pruningPipeline).search();
+            } catch (SolutionException e) {
+                // Ignore failed solution
+            }
+        }
+
+        return new Solution(configuration);
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2018 Alasdair Mercer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.neocotic.brickpopsolver.solution;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.neocotic.brickpopsolver.Board;
+import com.neocotic.brickpopsolver.Boards;
+import com.neocotic.brickpopsolver.Configuration;
+import com.neocotic.brickpopsolver.service.ServiceNotFoundException;
+
+// Solves a corpus of random boards with each of the configurations given and reports how many were solved along with
+// percentiles of the time taken across every board, whether solved or not. Every solution found is verified.
+//
+// Arguments: rows columns colorCount count configuration..., where each configuration is a comma-separated list of
+// settings (e.g. solutionService=serial,moveOrdering=history,timeLimit=10000)
+public final class SolveBenchmark {
+
+    private static final long SEED = 42;
+
+    public static void main(final String[] args) throws Exception {
+        if (args.length < 5) {
+            throw new IllegalArgumentException("Usage: SolveBenchmark rows columns colorCount count configuration...");
+        }
+
+        final int rows = Integer.parseInt(args[0]);
+        final int columns = Integer.parseInt(args[1]);
+        final int colorCount = Integer.parseInt(args[2]);
+        final int count = Integer.parseInt(args[3]);
+        final List<Board> boards = Boards.random(SEED, count, rows, columns, colorCount);
+
+        System.out.printf("%d boards of %dx%d with %d colors%n", count, rows, columns, colorCount);
+
+        for (int i = 4; i < args.length; i++) {
+            final Configuration configuration = parse(args[i]);
+            final List<Long> times = new ArrayList<>(count);
+            final List<Long> solvedTimes = new ArrayList<>(count);
+            int failedCount = 0;
+
+            for (final Board board : boards) {
+                final long start = System.nanoTime();
+                Solution solution;
+                try {
+                    solution = configuration.getSolutionService().solve(board, configuration);
+                } catch (SolutionException e) {
+                    // Services that give up before proving a board unsolvable fail rather than return an empty solution
+                    solution = new Solution(configuration);
+                    failedCount++;
+                }
+                final long time = System.nanoTime() - start;
+
+                times.add(time);
+
+                if (!solution.isEmpty()) {
+                    Boards.verify(board, solution.getSteps());
+                    solvedTimes.add(time);
+                }
+            }
+
+            Collections.sort(times);
+            Collections.sort(solvedTimes);
+
+            System.out.printf("%s: solved %d/%d, failed %d, p50 %.1fms, p90 %.1fms, p99 %.1fms, solved median %.1fms, solved total %.1fms%n", args[i], solvedTimes.size(), count, failedCount, getPercentile(times, 50), getPercentile(times, 90), getPercentile(times, 99), getPercentile(solvedTimes, 50), getTotal(solvedTimes));
+        }
+
+        // Services such as parallel keep their executors for the next solve
+        System.exit(0);
+    }
+
+    // Returns the nearest-rank percentile of the sorted times, in milliseconds
+    private static double getPercentile(final List<Long> times, final int percentile) {
+        if (times.isEmpty()) {
+            return 0;
+        }
+
+        final int rank = (int) Math.ceil(times.size() * percentile / 100.0);
+
+        return times.get(Math.max(rank, 1) - 1) / 1e6;
+    }
+
+    private static double getTotal(final List<Long> times) {
+        long total = 0;
+        for (final long time : times) {
+            total += time;
+        }
+
+        return total / 1e6;
+    }
+
+    private static Configuration parse(final String settings) throws ServiceNotFoundException {
+        final Configuration.Builder builder = new Configuration.Builder();
+
+        for (final String setting : settings.split(",")) {
+            final String[] parts = setting.split("=", 2);
+            if (parts.length != 2) {
+                throw new IllegalArgumentException(String.format("Setting must be name=value: %s", setting));
+            }
+
+            final String value = parts[1];
+
+            switch (parts[0]) {
+            case "beamScoring":
+                builder.beamScoringName(value);
+                break;
+            case "beamWidth":
+                builder.beamWidth(Integer.valueOf(value));
+                break;
+            case "mctsTimeLimit":
+                builder.mctsTimeLimit(Integer.valueOf(value));
+                break;
+            case "moveOrdering":
+                builder.moveOrderingName(value);
+                break;
+            case "nodeLimit":
+                builder.nodeLimit(Integer.valueOf(value));
+                break;
+            case "partialOrderReduction":
+                builder.partialOrderReduction(Boolean.valueOf(value));
+                break;
+            case "restartThreads":
+                builder.restartThreads(Integer.valueOf(value));
+                break;
+            case "restartUnit":
+                builder.restartUnit(Integer.valueOf(value));
+                break;
+            case "seed":
+                builder.seed(Long.valueOf(value));
+                break;
+            case "solutionService":
+                builder.solutionServiceName(value);
+                break;
+            case "timeLimit":
+                builder.timeLimit(Integer.valueOf(value));
+                break;
+            case "transpositionTableSize":
+                builder.transpositionTableSize(Integer.valueOf(value));
+                break;
+            default:
+                throw new IllegalArgumentException(String.format("Unknown setting: %s", parts[0]));
+            }
+        }
+
+        return builder.build();
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2018 Alasdair Mercer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.neocotic.brickpopsolver.solution.tablebase;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.neocotic.brickpopsolver.Board;
+import com.neocotic.brickpopsolver.Boards;
+import com.neocotic.brickpopsolver.Configuration;
+import com.neocotic.brickpopsolver.Coordinate;
+import com.neocotic.brickpopsolver.SearchBoard;
+import com.neocotic.brickpopsolver.solution.Solution;
+
+// Generates a small tablebase and checks it against search. Boards small enough to be held in the table are first
+// looked up directly and checked against a breadth-first search, which must agree on whether each can be solved and on
+// the fewest moves needed to do so, and the moves read back from the table must solve the board. Larger boards are then
+// solved by each service that consults the table, which must find the same boards to be solvable as the serial service
+// does without it, with every solution being valid. Exits by throwing an AssertionError on the first board that fails.
+public final class TablebaseCheck {
+
+    private static final int COLOR_COUNT = 4;
+    private static final int MAX_BRICK_COUNT = 8;
+    private static final long SEED = 7;
+
+    public static void main(final String[] args) throws Exception {
+        final Path file = Files.createTempFile("brickpopsolver-check", ".tablebase");
+        file.toFile().deleteOnExit();
+
+        new TablebaseGenerator(MAX_BRICK_COUNT, COLOR_COUNT).generate(file);
+
+        final Tablebase tablebase = new Tablebase(file);
+        final Configuration shortest = new Configuration.Builder()
+            .solutionServiceName("bfs")
+            .build();
+
+        checkLookup(Boards.random(SEED, 2000, 2, 4, COLOR_COUNT), tablebase, shortest);
+        checkLookup(Boards.random(SEED, 2000, 4, 2, COLOR_COUNT), tablebase, shortest);
+        checkLookup(Boards.random(SEED, 2000, 2, 3, 3), tablebase, shortest);
+
+        final Configuration plain = new Configuration.Builder()
+            .solutionServiceName("serial")
+            .build();
+        final List<Configuration> consulting = new ArrayList<>();
+        for (final String solutionServiceName : new String[] { "serial", "parallel", "forkjoin" }) {
+            consulting.add(new Configuration.Builder()
+                .solutionServiceName(solutionServiceName)
+                .tablebaseFileName(file.toString())
+                .tablebaseThreshold(MAX_BRICK_COUNT)
+                .build());
+        }
+
+        checkSearch(Boards.random(SEED, 300, 4, 4, COLOR_COUNT), plain, consulting);
+        checkSearch(Boards.random(SEED, 100, 5, 5, COLOR_COUNT), plain, consulting);
+
+        for (final Configuration configuration : consulting) {
+            configuration.getSolutionService().shutdown();
+        }
+    }
+
+    private static void checkLookup(final List<Board> boards, final Tablebase tablebase, final Configuration shortest) throws Exception {
+        int solvableCount = 0;
+
+        for (final Board board : boards) {
+            final SearchBoard searchBoard = new SearchBoard(board);
+            if (!tablebase.contains(searchBoard)) {
+                throw new AssertionError(String.format("Board is not within the limits of the tablebase:%s%s", System.lineSeparator(), board));
+            }
+
+            final int distance = tablebase.getDistance(searchBoard);
+            final Solution solution = shortest.getSolutionService().solve(board, shortest);
+
+            if (solution.isEmpty() != distance < 0) {
+                throw new AssertionError(String.format("Solvability differs in tablebase (%s by search):%s%s", !solution.isEmpty(), System.lineSeparator(), board));
+            }
+            if (solution.isEmpty()) {
+                continue;
+            }
+            if (solution.getSteps().size() != distance) {
+                throw new AssertionError(String.format("Tablebase needs %d moves rather than %d:%s%s", distance, solution.getSteps().size(), System.lineSeparator(), board));
+            }
+
+            final int[] moves = new int[searchBoard.getMaxMoveCount()];
+            final int count = tablebase.solve(searchBoard, moves, 0);
+            if (count != distance) {
+                throw new AssertionError(String.format("Tablebase applied %d moves rather than %d:%s%s", count, distance, System.lineSeparator(), board));
+            }
+
+            final List<Coordinate> steps = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                steps.add(searchBoard.getCoordinate(moves[i]));
+            }
+
+            Boards.verify(board, steps);
+            solvableCount++;
+        }
+
+        final Board first = boards.get(0);
+
+        System.out.printf("%dx%d: %d boards looked up, %d solvable%n", first.getRows(), first.getColumns(), boards.size(), solvableCount);
+    }
+
+    private static void checkSearch(final List<Board> boards, final Configuration plain, final List<Configuration> consulting) throws Exception {
+        int solvableCount = 0;
+
+        for (final Board board : boards) {
+            final Solution plainSolution = plain.getSolutionService().solve(board, plain);
+
+            for (final Configuration configuration : consulting) {
+                final Solution solution = configuration.getSolutionService().solve(board, configuration);
+
+                if (plainSolution.isEmpty() != solution.isEmpty()) {
+                    throw new AssertionError(String.format("Solvability differs with tablebase for %s (%s without):%s%s", configuration.getSolutionService().getServiceName(), !plainSolution.isEmpty(), System.lineSeparator(), board));
+                }
+
+                if (!solution.isEmpty()) {
+                    Boards.verify(board, solution.getSteps());
+                }
+            }
+
+            if (!plainSolution.isEmpty()) {
+                solvableCount++;
+            }
+        }
+
+        final Board first = boards.get(0);
+
+        System.out.printf("%dx%d: %d boards searched, %d solvable%n", first.getRows(), first.getColumns(), boards.size(), solvableCount);
+    }
+}